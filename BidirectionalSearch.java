@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// Point-to-point Dijkstra that searches forward from the start and backward from the
+// target at the same time. It relies on the graph being undirected, so the backward
+// search can follow getEdgesFrom just like the forward one. Like DijkstraSearch, it stops
+// with a CancellationException on an interrupted thread and reports its work to GraphMetrics.
+public class BidirectionalSearch<T> {
+
+    private static final int FORWARD = 0;
+    private static final int BACKWARD = 1;
+
+    private final Graph<T> graph;
+
+    // Dense ids for the nodes discovered by either search
+    private final HashMap<T, Integer> ids = new HashMap<>();
+    private final ArrayList<T> nodesById = new ArrayList<>();
+
+    // Per direction and id: best known distance and previous node id
+    private int[][] distances = new int[2][16];
+    private int[][] previous = new int[2][16];
+
+    // Edges used to reach each node in the forward search
+    private final ArrayList<Edge<T>> previousEdges = new ArrayList<>();
+
+    private final IndexedMinHeap[] queues = {new IndexedMinHeap(), new IndexedMinHeap()};
+
+    // Number of nodes taken off either queue during the last search
+    private int settledCount;
+
+    // Distance improvements, and the most nodes in both queues at once, in the last search
+    private int relaxedCount;
+    private int queuePeak;
+
+    public BidirectionalSearch(Graph<T> graph) {
+        this.graph = graph;
+    }
+
+    // Returns the shortest path from 'from' to 'to', or null if 'to' cannot be reached.
+    // The search stops once the smallest keys of the two queues add up to at least the
+    // shortest connection found so far between the two searches.
+    public List<Edge<T>> findPath(T from, T to) {
+        reset();
+        int source = idOf(from);
+        int target = idOf(to);
+        if (source == target) {
+            settledCount = 1;
+            searchFinished();
+            return new ArrayList<>();
+        }
+
+        distances[FORWARD][source] = 0;
+        distances[BACKWARD][target] = 0;
+        queues[FORWARD].insert(source, 0);
+        queues[BACKWARD].insert(target, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (!queues[FORWARD].isEmpty() && !queues[BACKWARD].isEmpty()) {
+            if ((long) queues[FORWARD].peekKey() + queues[BACKWARD].peekKey() >= best) {
+                break;
+            }
+
+            // Expand the side with the smaller frontier
+            int side = queues[FORWARD].size() <= queues[BACKWARD].size() ? FORWARD : BACKWARD;
+            int other = 1 - side;
+            int current = queues[side].poll();
+            settledCount++;
+            checkInterrupted();
+
+            int distance = distances[side][current];
+            for (Edge<T> edge : graph.getEdgesFrom(nodesById.get(current))) {
+                int next = idOf(edge.getDestination());
+                int nextDistance = distance + edge.getWeight();
+                if (nextDistance < distances[side][next]) {
+                    distances[side][next] = nextDistance;
+                    previous[side][next] = current;
+                    if (side == FORWARD) {
+                        previousEdges.set(next, edge);
+                    }
+                    queues[side].insertOrDecrease(next, nextDistance);
+                    relaxed();
+                }
+                if (distances[other][next] != Integer.MAX_VALUE
+                        && (long) distances[side][next] + distances[other][next] < best) {
+                    best = (long) distances[side][next] + distances[other][next];
+                    meeting = next;
+                }
+            }
+        }
+
+        searchFinished();
+
+        // No path found
+        if (meeting < 0) {
+            return null;
+        }
+        return gatherPath(source, target, meeting);
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public int getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    public int getQueuePeak() {
+        return queuePeak;
+    }
+
+    private void relaxed() {
+        relaxedCount++;
+        int queued = queues[FORWARD].size() + queues[BACKWARD].size();
+        if (queued > queuePeak) {
+            queuePeak = queued;
+        }
+    }
+
+    private void searchFinished() {
+        GraphMetrics.searched(settledCount, relaxedCount, queuePeak);
+    }
+
+    private void checkInterrupted() {
+        if (settledCount % DijkstraSearch.INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search was interrupted");
+        }
+    }
+
+    // Joins the forward path to the meeting node with the backward path from it
+    private List<Edge<T>> gatherPath(int source, int target, int meeting) {
+        ArrayList<Edge<T>> path = new ArrayList<>();
+        for (int current = meeting; current != source; current = previous[FORWARD][current]) {
+            path.add(previousEdges.get(current));
+        }
+        Collections.reverse(path);
+
+        for (int current = meeting; current != target; current = previous[BACKWARD][current]) {
+            int next = previous[BACKWARD][current];
+            path.add(graph.getEdgeBetween(nodesById.get(current), nodesById.get(next)));
+        }
+        return path;
+    }
+
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodesById.size();
+            ids.put(node, id);
+            nodesById.add(node);
+            previousEdges.add(null);
+            if (id == distances[FORWARD].length) {
+                for (int side = FORWARD; side <= BACKWARD; side++) {
+                    distances[side] = Arrays.copyOf(distances[side], id * 2);
+                    previous[side] = Arrays.copyOf(previous[side], id * 2);
+                }
+            }
+            for (int side = FORWARD; side <= BACKWARD; side++) {
+                distances[side][id] = Integer.MAX_VALUE;
+                previous[side][id] = -1;
+            }
+        }
+        return id;
+    }
+
+    private void reset() {
+        ids.clear();
+        nodesById.clear();
+        previousEdges.clear();
+        queues[FORWARD].clear();
+        queues[BACKWARD].clear();
+        settledCount = 0;
+        relaxedCount = 0;
+        queuePeak = 0;
+    }
+}
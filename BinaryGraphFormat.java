@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+// The binary .graphb format, which MappedGraph reads through a memory-mapped file without
+// parsing. All numbers are big-endian. The file is laid out as:
+//
+//   header         magic, version, node count, arc count, string count, string bytes,
+//                  string index of the image path, reserved (8 ints)
+//   coordinates    double x, y per node
+//   offsets        int per node + 1; the arcs of node i are offsets[i] .. offsets[i + 1] - 1
+//   targets        int per arc
+//   weights        int per arc
+//   arc names      int per arc, index into the string table
+//   node names     int per node, index into the string table
+//   name order     int per node, the node ids sorted by name, for lookups by name
+//   string offsets int per string + 1, byte offsets into the string bytes
+//   string bytes   UTF-8
+//
+// Every connection is stored as two arcs, one in each direction.
+public class BinaryGraphFormat {
+
+    public static final int MAGIC = 0x50464742;
+    public static final int VERSION = 1;
+
+    static final int HEADER_INTS = 8;
+
+    private BinaryGraphFormat() {
+    }
+
+    // Writes a graph of places to a binary file, replacing it atomically where supported
+    public static <T extends Place> void write(Graph<T> graph, String imagePath, Path file) throws IOException {
+        Set<T> places = graph.getNodes();
+        int n = places.size();
+        ArrayList<T> nodes = new ArrayList<>(places);
+        HashMap<T, Integer> ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            ids.put(nodes.get(i), i);
+        }
+
+        // Connection names repeat a lot, so every distinct string is stored once
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        ArrayList<byte[]> strings = new ArrayList<>();
+        int imageString = intern(imagePath, stringIds, strings);
+
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + graph.getEdgesFrom(nodes.get(i)).size();
+        }
+        int arcCount = offsets[n];
+        int[] targets = new int[arcCount];
+        int[] weights = new int[arcCount];
+        int[] arcNames = new int[arcCount];
+        int[] nodeNames = new int[n];
+        for (int i = 0; i < n; i++) {
+            nodeNames[i] = intern(nodes.get(i).getName(), stringIds, strings);
+            int position = offsets[i];
+            for (Edge<T> edge : graph.getEdgesFrom(nodes.get(i))) {
+                targets[position] = ids.get(edge.getDestination());
+                weights[position] = edge.getWeight();
+                arcNames[position] = intern(edge.getName(), stringIds, strings);
+                position++;
+            }
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> nodes.get(a).getName().compareTo(nodes.get(b).getName()));
+
+        int[] stringOffsets = new int[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i + 1] = stringOffsets[i] + strings.get(i).length;
+        }
+
+        long size = 4L * HEADER_INTS + 16L * n + 4L * (n + 1) + 12L * arcCount + 8L * n
+                + 4L * (strings.size() + 1) + stringOffsets[strings.size()];
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Graph is too large for the binary format");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(arcCount)
+                .putInt(strings.size()).putInt(stringOffsets[strings.size()]).putInt(imageString).putInt(0);
+        for (T node : nodes) {
+            buffer.putDouble(node.getX()).putDouble(node.getY());
+        }
+        buffer.asIntBuffer().put(offsets).put(targets).put(weights).put(arcNames).put(nodeNames)
+                .put(toIntArray(order)).put(stringOffsets);
+        buffer.position(buffer.position() + 4 * (n + 1 + 3 * arcCount + 2 * n + strings.size() + 1));
+        for (byte[] string : strings) {
+            buffer.put(string);
+        }
+        buffer.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Converts a .graph text file, with the saved changes in its journal, to the binary format
+    public static void textToBinary(Path textFile, Path binaryFile) throws IOException {
+        ListGraph<Location> graph = new ListGraph<>();
+        GraphReader<Location> reader = new GraphReader<>(Location::new);
+        reader.read(textFile, graph);
+        GraphJournal.replaySaved(textFile, graph, Location::new);
+        write(graph, reader.getImagePath(), binaryFile);
+    }
+
+    // Converts a binary file back to the .graph text format
+    public static void binaryToText(Path binaryFile, Path textFile) throws IOException {
+        MappedGraph mapped = MappedGraph.open(binaryFile);
+        new GraphWriter<Location>(mapped.getImagePath()).write(mapped.toListGraph(), textFile);
+    }
+
+    // Usage: java BinaryGraphFormat (to-binary | to-text) input output
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-text"))) {
+            System.err.println("Usage: java BinaryGraphFormat (to-binary | to-text) input output");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        if (args[0].equals("to-binary")) {
+            textToBinary(Paths.get(args[1]), Paths.get(args[2]));
+        } else {
+            binaryToText(Paths.get(args[1]), Paths.get(args[2]));
+        }
+        System.out.printf("Converted in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+
+    private static int intern(String string, HashMap<String, Integer> stringIds, ArrayList<byte[]> strings) {
+        String key = string == null ? "" : string;
+        Integer id = stringIds.get(key);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(key, id);
+            strings.add(key.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static int[] toIntArray(Integer[] values) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+}
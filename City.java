@@ -1,7 +1,7 @@
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 
-public class City extends Circle {
+public class City extends Circle implements Place {
 
     private String name;
 
@@ -19,6 +19,14 @@ public class City extends Circle {
         return name;
     }
 
+    public double getX() {
+        return getCenterX();
+    }
+
+    public double getY() {
+        return getCenterY();
+    }
+
     public void paintRed() {
         setFill(Color.RED);
     }
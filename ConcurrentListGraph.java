@@ -0,0 +1,454 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A graph that can be shared between threads. All the data lives in an immutable Snapshot
+// published through a volatile field: readers take the current snapshot without locking
+// and see one consistent version of the graph for as long as they use it. Writers are
+// serialized and build the next snapshot copy-on-write. Adjacency is stored in chunks of
+// node ids, so a change copies only the chunk index and the chunks it touches, not the
+// whole graph.
+public class ConcurrentListGraph<T> implements Graph<T> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Dense ids of every node ever added. Ids are never reused for other nodes, and a
+    // snapshot ignores ids at or above its own size, so all snapshots can share the map.
+    private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile Snapshot<T> snapshot = new Snapshot<>(ids, new Object[0][], new Object[0][], 0, 0, 0);
+
+    // An edge of a snapshot; its weight cannot be changed in place
+    private static final class SnapshotEdge<T> extends Edge<T> {
+
+        SnapshotEdge(T destination, int weight, String name) {
+            super(destination, weight, name);
+        }
+
+        @Override
+        public void setWeight(int weight) {
+            throw new UnsupportedOperationException("Snapshot edges cannot be changed");
+        }
+    }
+
+    // An immutable version of the graph. It implements the read-only part of Graph, so
+    // path searches can run directly on it.
+    public static final class Snapshot<T> implements Graph<T> {
+
+        private final ConcurrentHashMap<T, Integer> ids;
+
+        // Chunked arrays indexed by id: the node, and its edges keyed by destination,
+        // or null if the node has been removed
+        private final Object[][] nodes;
+        private final Object[][] adjacency;
+
+        // Ids below size are part of this snapshot
+        private final int size;
+        private final int nodeCount;
+        private final long version;
+
+        private Snapshot(ConcurrentHashMap<T, Integer> ids, Object[][] nodes, Object[][] adjacency, int size,
+                int nodeCount, long version) {
+            this.ids = ids;
+            this.nodes = nodes;
+            this.adjacency = adjacency;
+            this.size = size;
+            this.nodeCount = nodeCount;
+            this.version = version;
+        }
+
+        // Returns the number of changes made to the graph before this snapshot
+        public long getVersion() {
+            return version;
+        }
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        public void add(T node) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void remove(T node) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void connect(T node1, T node2, String name, int weight) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void disconnect(T node1, T node2) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        public void setConnectionWeight(T node1, T node2, int weight) {
+            throw new UnsupportedOperationException("Snapshots are read-only");
+        }
+
+        @SuppressWarnings("unchecked")
+        public Set<T> getNodes() {
+            Set<T> result = new HashSet<>(nodeCount * 4 / 3 + 1);
+            for (int id = 0; id < size; id++) {
+                if (edgesOf(id) != null) {
+                    result.add((T) nodes[id >>> CHUNK_BITS][id & CHUNK_MASK]);
+                }
+            }
+            return result;
+        }
+
+        // Returns a read-only view of all edges from a given node
+        public Collection<Edge<T>> getEdgesFrom(T node) {
+            return Collections.unmodifiableCollection(edgesOf(node).values());
+        }
+
+        public Edge<T> getEdgeBetween(T node1, T node2) {
+            Map<T, Edge<T>> edges = edgesOf(node1);
+            edgesOf(node2);
+            return edges.get(node2);
+        }
+
+        // Checks if a path exists with a breadth-first search
+        public boolean pathExists(T from, T to) {
+            if (find(from) == null || find(to) == null) {
+                return false;
+            }
+            Set<T> visited = new HashSet<>();
+            ArrayDeque<T> queue = new ArrayDeque<>();
+            visited.add(from);
+            queue.add(from);
+            while (!queue.isEmpty()) {
+                T current = queue.poll();
+                if (current.equals(to)) {
+                    return true;
+                }
+                for (T next : edgesOf(current).keySet()) {
+                    if (visited.add(next)) {
+                        queue.add(next);
+                    }
+                }
+            }
+            return false;
+        }
+
+        public List<Edge<T>> getPath(T from, T to) {
+            edgesOf(to);
+            return new DijkstraSearch<>(this).findPath(from, to);
+        }
+
+        // Returns the edges of a node, or null if the node is not in this snapshot
+        private Map<T, Edge<T>> find(T node) {
+            Integer id = ids.get(node);
+            return id == null || id >= size ? null : edgesOf(id);
+        }
+
+        private Map<T, Edge<T>> edgesOf(T node) {
+            Map<T, Edge<T>> edges = find(node);
+            if (edges == null) {
+                throw new NoSuchElementException("Node not found in graph");
+            }
+            return edges;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<T, Edge<T>> edgesOf(int id) {
+            return (Map<T, Edge<T>>) adjacency[id >>> CHUNK_BITS][id & CHUNK_MASK];
+        }
+    }
+
+    // Builds the next snapshot, copying each chunk at most once
+    private final class Writer {
+        private final Snapshot<T> base;
+        private Object[][] nodes;
+        private Object[][] adjacency;
+        private final boolean[] copied;
+        private int size;
+        private int nodeCount;
+
+        Writer(Snapshot<T> base) {
+            this.base = base;
+            this.nodes = base.nodes;
+            this.adjacency = base.adjacency.clone();
+            this.copied = new boolean[adjacency.length + 1];
+            this.size = base.size;
+            this.nodeCount = base.nodeCount;
+        }
+
+        Map<T, Edge<T>> edgesOf(T node) {
+            return base.edgesOf(node);
+        }
+
+        // Gives a node a new id. Slots at or above the base size are invisible to every
+        // published snapshot, so they are written in place.
+        int append(T node) {
+            int id = size++;
+            int chunk = id >>> CHUNK_BITS;
+            if (chunk == adjacency.length) {
+                nodes = Arrays.copyOf(nodes, chunk + 1);
+                adjacency = Arrays.copyOf(adjacency, chunk + 1);
+                nodes[chunk] = new Object[CHUNK_SIZE];
+                adjacency[chunk] = new Object[CHUNK_SIZE];
+            }
+            nodes[chunk][id & CHUNK_MASK] = node;
+            return id;
+        }
+
+        void setEdges(T node, Map<T, Edge<T>> edges) {
+            setEdges(ids.get(node), edges);
+        }
+
+        void setEdges(int id, Map<T, Edge<T>> edges) {
+            int chunk = id >>> CHUNK_BITS;
+            if (chunk < copied.length && !copied[chunk] && id < base.size) {
+                adjacency[chunk] = adjacency[chunk].clone();
+                copied[chunk] = true;
+            }
+            adjacency[chunk][id & CHUNK_MASK] = edges;
+        }
+
+        void publish(int nodeCountChange) {
+            snapshot = new Snapshot<>(ids, nodes, adjacency, size, nodeCount + nodeCountChange, base.version + 1);
+        }
+    }
+
+    public ConcurrentListGraph() {
+    }
+
+    // Creates a concurrent graph with the same nodes and connections as another graph
+    public ConcurrentListGraph(Graph<T> graph) {
+        Writer writer = new Writer(snapshot);
+        Set<T> nodes = graph.getNodes();
+        for (T node : nodes) {
+            ids.put(node, writer.append(node));
+        }
+        for (T node : nodes) {
+            Map<T, Edge<T>> edges = new HashMap<>();
+            for (Edge<T> edge : graph.getEdgesFrom(node)) {
+                edges.put(edge.getDestination(),
+                        new SnapshotEdge<>(edge.getDestination(), edge.getWeight(), edge.getName()));
+            }
+            writer.setEdges(node, edges);
+        }
+        writer.publish(nodes.size());
+    }
+
+    // Returns the current version of the graph; it never changes once taken
+    public Snapshot<T> snapshot() {
+        return snapshot;
+    }
+
+    public synchronized void add(T node) {
+        Snapshot<T> current = snapshot;
+        if (current.find(node) != null) {
+            return;
+        }
+        Writer writer = new Writer(current);
+        Integer id = ids.get(node);
+        if (id == null || id >= current.size) {
+            id = writer.append(node);
+            ids.put(node, id);
+        }
+        writer.setEdges(id, new HashMap<>());
+        writer.publish(1);
+    }
+
+    // Removes a node and all edges connected to it
+    public synchronized void remove(T node) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Edge<T>> edges = writer.edgesOf(node);
+        for (T neighbour : edges.keySet()) {
+            Map<T, Edge<T>> neighbourEdges = new HashMap<>(writer.edgesOf(neighbour));
+            neighbourEdges.remove(node);
+            writer.setEdges(neighbour, neighbourEdges);
+        }
+        writer.setEdges(node, null);
+        writer.publish(-1);
+    }
+
+    // Connects two nodes with an edge (both directions since this is an undirected graph)
+    public synchronized void connect(T node1, T node2, String name, int weight) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Edge<T>> edges1 = new HashMap<>(writer.edgesOf(node1));
+        Map<T, Edge<T>> edges2 = new HashMap<>(writer.edgesOf(node2));
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        } else if (edges1.containsKey(node2)) {
+            throw new IllegalStateException("Edge already exists between nodes");
+        }
+
+        edges1.put(node2, new SnapshotEdge<>(node2, weight, name));
+        edges2.put(node1, new SnapshotEdge<>(node1, weight, name));
+        writer.setEdges(node1, edges1);
+        writer.setEdges(node2, edges2);
+        writer.publish(0);
+    }
+
+    // Disconnects two nodes (removes the edge between them)
+    public synchronized void disconnect(T node1, T node2) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Edge<T>> edges1 = new HashMap<>(writer.edgesOf(node1));
+        Map<T, Edge<T>> edges2 = new HashMap<>(writer.edgesOf(node2));
+        if (edges1.remove(node2) == null) {
+            throw new IllegalStateException("No edge found between the two nodes");
+        }
+        edges2.remove(node1);
+        writer.setEdges(node1, edges1);
+        writer.setEdges(node2, edges2);
+        writer.publish(0);
+    }
+
+    // Sets a new weight for the edge between two nodes by replacing both edge objects
+    public synchronized void setConnectionWeight(T node1, T node2, int newWeight) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Edge<T>> edges1 = new HashMap<>(writer.edgesOf(node1));
+        Map<T, Edge<T>> edges2 = new HashMap<>(writer.edgesOf(node2));
+        if (newWeight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+
+        Edge<T> edge = edges1.get(node2);
+        if (edge == null) {
+            throw new NoSuchElementException("No edge found between the two nodes");
+        }
+        edges1.put(node2, new SnapshotEdge<>(node2, newWeight, edge.getName()));
+        edges2.put(node1, new SnapshotEdge<>(node1, newWeight, edge.getName()));
+        writer.setEdges(node1, edges1);
+        writer.setEdges(node2, edges2);
+        writer.publish(0);
+    }
+
+    // Adds every new node and publishes them in one snapshot
+    @Override
+    public synchronized void addAll(Collection<? extends T> newNodes) {
+        Snapshot<T> current = snapshot;
+        Writer writer = new Writer(current);
+        Set<T> added = new HashSet<>();
+        for (T node : newNodes) {
+            if (current.find(node) != null || !added.add(node)) {
+                continue;
+            }
+            Integer id = ids.get(node);
+            if (id == null || id >= current.size) {
+                id = writer.append(node);
+                ids.put(node, id);
+            }
+            writer.setEdges(id, new HashMap<>());
+        }
+        if (!added.isEmpty()) {
+            writer.publish(added.size());
+        }
+    }
+
+    // Makes every connection and publishes them in one snapshot, copying the edges of each
+    // node once. Nothing is published if any connection is invalid.
+    @Override
+    public synchronized void connectAll(Collection<? extends Connection<T>> connections) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Map<T, Edge<T>>> copies = new HashMap<>();
+        for (Connection<T> connection : connections) {
+            T node1 = connection.getNode1();
+            T node2 = connection.getNode2();
+            Map<T, Edge<T>> edges1 = copies.computeIfAbsent(node1, node -> new HashMap<>(writer.edgesOf(node)));
+            Map<T, Edge<T>> edges2 = copies.computeIfAbsent(node2, node -> new HashMap<>(writer.edgesOf(node)));
+            if (connection.getWeight() < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + connection);
+            } else if (edges1.containsKey(node2)) {
+                throw new IllegalStateException("Edge already exists between nodes: " + connection);
+            }
+            edges1.put(node2, new SnapshotEdge<>(node2, connection.getWeight(), connection.getName()));
+            edges2.put(node1, new SnapshotEdge<>(node1, connection.getWeight(), connection.getName()));
+        }
+        publishCopies(writer, copies);
+    }
+
+    // Applies every update in order and publishes them in one snapshot. Nothing is
+    // published if any update is invalid.
+    @Override
+    public synchronized void setConnectionWeights(Collection<? extends WeightUpdate<T>> updates) {
+        Writer writer = new Writer(snapshot);
+        Map<T, Map<T, Edge<T>>> copies = new HashMap<>();
+        for (WeightUpdate<T> update : updates) {
+            T node1 = update.getNode1();
+            T node2 = update.getNode2();
+            Map<T, Edge<T>> edges1 = copies.computeIfAbsent(node1, node -> new HashMap<>(writer.edgesOf(node)));
+            Map<T, Edge<T>> edges2 = copies.computeIfAbsent(node2, node -> new HashMap<>(writer.edgesOf(node)));
+            if (update.getWeight() < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + update);
+            }
+            Edge<T> edge = edges1.get(node2);
+            if (edge == null) {
+                throw new NoSuchElementException("No edge found between the two nodes: " + update);
+            }
+            edges1.put(node2, new SnapshotEdge<>(node2, update.getWeight(), edge.getName()));
+            edges2.put(node1, new SnapshotEdge<>(node1, update.getWeight(), edge.getName()));
+        }
+        publishCopies(writer, copies);
+    }
+
+    private void publishCopies(Writer writer, Map<T, Map<T, Edge<T>>> copies) {
+        if (copies.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<T, Map<T, Edge<T>>> entry : copies.entrySet()) {
+            writer.setEdges(entry.getKey(), entry.getValue());
+        }
+        writer.publish(0);
+    }
+
+    public Set<T> getNodes() {
+        return snapshot.getNodes();
+    }
+
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        return snapshot.getEdgesFrom(node);
+    }
+
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        return snapshot.getEdgeBetween(node1, node2);
+    }
+
+    public boolean pathExists(T from, T to) {
+        return snapshot.pathExists(from, to);
+    }
+
+    // Searches one snapshot, so concurrent changes never show up halfway through a path.
+    // The queries below run on one snapshot for the same reason, instead of on this graph.
+    public List<Edge<T>> getPath(T from, T to) {
+        return snapshot.getPath(from, to);
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to, Heuristic<T> heuristic) {
+        return snapshot.getPath(from, to, heuristic);
+    }
+
+    @Override
+    public Iterator<List<Edge<T>>> getPaths(T from, T to, int k) {
+        return snapshot.getPaths(from, to, k);
+    }
+
+    @Override
+    public ShortestPathTree<T> shortestPathTree(T from) {
+        return snapshot.shortestPathTree(from);
+    }
+
+    @Override
+    public DistanceMatrix<T> distanceMatrix(Collection<T> sources, Collection<T> targets) {
+        return snapshot.distanceMatrix(sources, targets);
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+}
@@ -0,0 +1,36 @@
+// A connection to be made between two nodes, for Graph.connectAll
+public class Connection<T> {
+
+    private final T node1;
+    private final T node2;
+    private final String name;
+    private final int weight;
+
+    public Connection(T node1, T node2, String name, int weight) {
+        this.node1 = node1;
+        this.node2 = node2;
+        this.name = name;
+        this.weight = weight;
+    }
+
+    public T getNode1() {
+        return node1;
+    }
+
+    public T getNode2() {
+        return node2;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return node1 + " - " + node2 + " by " + name + " takes " + weight;
+    }
+}
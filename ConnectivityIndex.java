@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Keeps track of which nodes of a graph are connected to each other, so that path
+// existence is a near constant-time lookup. Added nodes and connections are merged into
+// a union-find structure as they happen. Removing a connection or a node can split a
+// component, which union-find cannot undo, so the index is then rebuilt from the graph
+// the next time it is queried.
+public class ConnectivityIndex<T> {
+
+    private final Graph<T> graph;
+
+    private final HashMap<T, Integer> ids = new HashMap<>();
+
+    // Union-find forest over the ids, with the size of the tree below every root
+    private int[] parents = new int[16];
+    private int[] sizes = new int[16];
+
+    // True when nodes or connections were removed since the index was last built
+    private boolean stale;
+
+    public ConnectivityIndex(Graph<T> graph) {
+        this.graph = graph;
+    }
+
+    public void nodeAdded(T node) {
+        if (!stale) {
+            idOf(node);
+        }
+    }
+
+    public void connectionAdded(T node1, T node2) {
+        if (!stale) {
+            union(idOf(node1), idOf(node2));
+        }
+    }
+
+    // Called when a connection or node is removed
+    public void invalidate() {
+        stale = true;
+    }
+
+    // Returns true if both nodes are in the graph and connected by some path
+    public boolean isConnected(T node1, T node2) {
+        if (stale) {
+            rebuild();
+        }
+        Integer id1 = ids.get(node1);
+        Integer id2 = ids.get(node2);
+        return id1 != null && id2 != null && find(id1) == find(id2);
+    }
+
+    private void rebuild() {
+        ids.clear();
+        for (T node : graph.getNodes()) {
+            int id = idOf(node);
+            for (Edge<T> edge : graph.getEdgesFrom(node)) {
+                union(id, idOf(edge.getDestination()));
+            }
+        }
+        stale = false;
+    }
+
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = ids.size();
+            ids.put(node, id);
+            if (id == parents.length) {
+                parents = Arrays.copyOf(parents, id * 2);
+                sizes = Arrays.copyOf(sizes, id * 2);
+            }
+            parents[id] = id;
+            sizes[id] = 1;
+        }
+        return id;
+    }
+
+    // Finds the root of an id, halving the path on the way
+    private int find(int id) {
+        while (parents[id] != id) {
+            parents[id] = parents[parents[id]];
+            id = parents[id];
+        }
+        return id;
+    }
+
+    // Merges two trees, hanging the smaller one below the root of the larger one
+    private void union(int id1, int id2) {
+        int root1 = find(id1);
+        int root2 = find(id2);
+        if (root1 == root2) {
+            return;
+        }
+        if (sizes[root1] < sizes[root2]) {
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+        parents[root2] = root1;
+        sizes[root1] += sizes[root2];
+    }
+}
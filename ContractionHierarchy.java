@@ -0,0 +1,355 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+// Contraction Hierarchies preprocessing for an undirected graph that is queried far more
+// often than it changes. Nodes are contracted one by one, least important first, and a
+// shortcut is added between two neighbours of a contracted node whenever no witness path
+// avoiding it is as short. Only edges leading to more important nodes are kept, which lets
+// ContractionHierarchyQuery answer point-to-point queries with two small upward searches.
+// The hierarchy is a snapshot: it has to be rebuilt when the graph changes. Building it on
+// an interrupted thread stops with a CancellationException.
+public class ContractionHierarchy<T> {
+
+    // Witness searches give up after settling this many nodes and assume no witness exists.
+    // Estimating a node's priority only needs a rough shortcut count, so it searches less.
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int PRIORITY_SETTLE_LIMIT = 50;
+
+    private final T[] nodes;
+    private final HashMap<T, Integer> ids;
+
+    // Contraction order of every node; higher rank means contracted later
+    private final int[] ranks;
+
+    // Upward edges in compressed sparse row form: the edges of node i lead to nodes of
+    // higher rank and are stored at positions upOffsets[i] .. upOffsets[i + 1] - 1
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+
+    // The contracted node a shortcut bypasses, or -1 for an original edge
+    private final int[] upMiddles;
+
+    // For original edges, the graph's edge in the upward and the downward direction
+    private final Edge<T>[] upEdges;
+    private final Edge<T>[] downEdges;
+
+    private final int shortcutCount;
+
+    // The remaining neighbours of a node while the graph is being contracted, with the
+    // cheapest edge to each. Degrees are small, so plain arrays beat hash maps here.
+    private static class Neighbours<T> {
+        int size;
+        int[] targets = new int[4];
+        int[] weights = new int[4];
+        int[] middles = new int[4];
+        Edge<T>[] edges = newEdgeArray(4);
+        Edge<T>[] reverseEdges = newEdgeArray(4);
+
+        int indexOf(int target) {
+            for (int i = 0; i < size; i++) {
+                if (targets[i] == target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Adds an edge to 'target', or replaces the existing one if the new one is cheaper
+        void put(int target, int weight, int middle, Edge<T> edge) {
+            int index = indexOf(target);
+            if (index < 0) {
+                if (size == targets.length) {
+                    targets = Arrays.copyOf(targets, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                    middles = Arrays.copyOf(middles, size * 2);
+                    edges = Arrays.copyOf(edges, size * 2);
+                    reverseEdges = Arrays.copyOf(reverseEdges, size * 2);
+                }
+                index = size++;
+            } else if (weights[index] <= weight) {
+                return;
+            }
+            targets[index] = target;
+            weights[index] = weight;
+            middles[index] = middle;
+            edges[index] = edge;
+        }
+
+        // Removes the edge to 'target' and returns the graph edge it stood for, if any
+        Edge<T> remove(int target) {
+            int index = indexOf(target);
+            Edge<T> edge = edges[index];
+            size--;
+            targets[index] = targets[size];
+            weights[index] = weights[size];
+            middles[index] = middles[size];
+            edges[index] = edges[size];
+            reverseEdges[index] = reverseEdges[size];
+            return edge;
+        }
+    }
+
+    // Workspace used while the hierarchy is being built
+    private ArrayList<Neighbours<T>> adjacency;
+    private int[] witnessDistances;
+    private boolean[] witnessTargets;
+    private int[] witnessTouched;
+    private int witnessTouchedCount;
+    private IndexedMinHeap witnessQueue;
+
+    @SuppressWarnings("unchecked")
+    public ContractionHierarchy(Graph<T> graph) {
+        Set<T> graphNodes = graph.getNodes();
+        nodes = (T[]) graphNodes.toArray();
+        int n = nodes.length;
+        ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            ids.put(nodes[i], i);
+        }
+
+        adjacency = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Neighbours<T> neighbours = new Neighbours<>();
+            for (Edge<T> edge : graph.getEdgesFrom(nodes[i])) {
+                int neighbour = ids.get(edge.getDestination());
+                if (neighbour != i) {
+                    neighbours.put(neighbour, edge.getWeight(), -1, edge);
+                }
+            }
+            adjacency.add(neighbours);
+        }
+
+        witnessDistances = new int[n];
+        Arrays.fill(witnessDistances, Integer.MAX_VALUE);
+        witnessTargets = new boolean[n];
+        witnessTouched = new int[Math.max(n, 1)];
+        witnessQueue = new IndexedMinHeap(n);
+
+        // Contract nodes in order of priority. The priorities of the neighbours are updated
+        // after every contraction, and a node's priority is checked again when it reaches
+        // the front of the queue (lazy updates)
+        ranks = new int[n];
+        int[] contractedNeighbours = new int[n];
+        IndexedMinHeap order = new IndexedMinHeap(n);
+        for (int i = 0; i < n; i++) {
+            checkInterrupted(i);
+            order.insert(i, priority(i, contractedNeighbours));
+        }
+
+        int rank = 0;
+        int shortcuts = 0;
+        int polled = 0;
+        while (!order.isEmpty()) {
+            int node = order.poll();
+            checkInterrupted(++polled);
+            int priority = priority(node, contractedNeighbours);
+            if (!order.isEmpty() && priority > order.peekKey()) {
+                order.insert(node, priority);
+                continue;
+            }
+
+            shortcuts += contract(node, WITNESS_SETTLE_LIMIT, false);
+            ranks[node] = rank++;
+
+            // The edges left on the node lead to nodes contracted later; detach them from
+            // those nodes and remember the graph edge of the way back down
+            Neighbours<T> up = adjacency.get(node);
+            for (int i = 0; i < up.size; i++) {
+                up.reverseEdges[i] = adjacency.get(up.targets[i]).remove(node);
+                contractedNeighbours[up.targets[i]]++;
+            }
+            for (int i = 0; i < up.size; i++) {
+                order.changeKey(up.targets[i], priority(up.targets[i], contractedNeighbours));
+            }
+        }
+        shortcutCount = shortcuts;
+
+        upOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            upOffsets[i + 1] = upOffsets[i] + adjacency.get(i).size;
+        }
+        int arcCount = upOffsets[n];
+        upTargets = new int[arcCount];
+        upWeights = new int[arcCount];
+        upMiddles = new int[arcCount];
+        upEdges = newEdgeArray(arcCount);
+        downEdges = newEdgeArray(arcCount);
+        for (int i = 0; i < n; i++) {
+            Neighbours<T> up = adjacency.get(i);
+            int offset = upOffsets[i];
+            System.arraycopy(up.targets, 0, upTargets, offset, up.size);
+            System.arraycopy(up.weights, 0, upWeights, offset, up.size);
+            System.arraycopy(up.middles, 0, upMiddles, offset, up.size);
+            System.arraycopy(up.edges, 0, upEdges, offset, up.size);
+            System.arraycopy(up.reverseEdges, 0, downEdges, offset, up.size);
+        }
+
+        adjacency = null;
+        witnessDistances = null;
+        witnessTargets = null;
+        witnessTouched = null;
+        witnessQueue = null;
+    }
+
+    // Checks for an interrupt every INTERRUPT_CHECK_INTERVAL nodes handled
+    private static void checkInterrupted(int handled) {
+        if (handled % DijkstraSearch.INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Building the hierarchy was interrupted");
+        }
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new NoSuchElementException("Node not found in hierarchy");
+        }
+        return id;
+    }
+
+    int[] getUpOffsets() {
+        return upOffsets;
+    }
+
+    int[] getUpTargets() {
+        return upTargets;
+    }
+
+    int[] getUpWeights() {
+        return upWeights;
+    }
+
+    // Appends the original edges making up the edge between two adjacent nodes of the
+    // hierarchy, in the direction from 'from' to 'to', expanding shortcuts recursively
+    void unpack(int from, int to, ArrayList<Edge<T>> path) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = from;
+        stack[size++] = to;
+
+        while (size > 0) {
+            int b = stack[--size];
+            int a = stack[--size];
+            boolean upward = ranks[a] < ranks[b];
+            int arc = arcBetween(upward ? a : b, upward ? b : a);
+            int middle = upMiddles[arc];
+            if (middle < 0) {
+                path.add(upward ? upEdges[arc] : downEdges[arc]);
+            } else {
+                if (size + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                // Push the second half first so the first half is expanded first
+                stack[size++] = middle;
+                stack[size++] = b;
+                stack[size++] = a;
+                stack[size++] = middle;
+            }
+        }
+    }
+
+    private int arcBetween(int low, int high) {
+        for (int i = upOffsets[low]; i < upOffsets[low + 1]; i++) {
+            if (upTargets[i] == high) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Hierarchy is missing an edge");
+    }
+
+    // Edge difference plus the number of already contracted neighbours, which spreads the
+    // contraction evenly over the graph
+    private int priority(int node, int[] contractedNeighbours) {
+        int shortcuts = contract(node, PRIORITY_SETTLE_LIMIT, true);
+        return 2 * (shortcuts - adjacency.get(node).size) + contractedNeighbours[node];
+    }
+
+    // Finds the shortcuts needed to contract a node and returns how many there are.
+    // Unless simulating, the shortcuts are also added to the adjacency.
+    private int contract(int node, int settleLimit, boolean simulate) {
+        Neighbours<T> neighbours = adjacency.get(node);
+        int count = neighbours.size;
+        int[] targets = Arrays.copyOf(neighbours.targets, count);
+        int[] weights = Arrays.copyOf(neighbours.weights, count);
+
+        int shortcuts = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int maxWeight = 0;
+            for (int j = i + 1; j < count; j++) {
+                maxWeight = Math.max(maxWeight, weights[j]);
+                witnessTargets[targets[j]] = true;
+            }
+            witnessSearch(targets[i], node, weights[i] + maxWeight, count - i - 1, settleLimit);
+
+            for (int j = i + 1; j < count; j++) {
+                witnessTargets[targets[j]] = false;
+                int viaNode = weights[i] + weights[j];
+                if (witnessDistances[targets[j]] > viaNode) {
+                    shortcuts++;
+                    if (!simulate) {
+                        adjacency.get(targets[i]).put(targets[j], viaNode, node, null);
+                        adjacency.get(targets[j]).put(targets[i], viaNode, node, null);
+                    }
+                }
+            }
+            clearWitnessSearch();
+        }
+        return shortcuts;
+    }
+
+    // Dijkstra from 'source' that ignores 'excluded' and stops when all targets are settled,
+    // past 'limit' or after settling 'settleLimit' nodes
+    private void witnessSearch(int source, int excluded, int limit, int targetCount, int settleLimit) {
+        witnessDistances[source] = 0;
+        witnessTouched[witnessTouchedCount++] = source;
+        witnessQueue.insert(source, 0);
+
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && settled < settleLimit && witnessQueue.peekKey() <= limit) {
+            int current = witnessQueue.poll();
+            settled++;
+            if (witnessTargets[current] && --targetCount == 0) {
+                break;
+            }
+
+            int distance = witnessDistances[current];
+            Neighbours<T> neighbours = adjacency.get(current);
+            for (int i = 0; i < neighbours.size; i++) {
+                int next = neighbours.targets[i];
+                int nextDistance = distance + neighbours.weights[i];
+                if (next != excluded && nextDistance < witnessDistances[next]) {
+                    if (witnessDistances[next] == Integer.MAX_VALUE) {
+                        witnessTouched[witnessTouchedCount++] = next;
+                    }
+                    witnessDistances[next] = nextDistance;
+                    witnessQueue.insertOrDecrease(next, nextDistance);
+                }
+            }
+        }
+    }
+
+    private void clearWitnessSearch() {
+        for (int i = 0; i < witnessTouchedCount; i++) {
+            witnessDistances[witnessTouched[i]] = Integer.MAX_VALUE;
+        }
+        witnessTouchedCount = 0;
+        witnessQueue.clear();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> Edge<T>[] newEdgeArray(int length) {
+        return (Edge<T>[]) new Edge[length];
+    }
+}
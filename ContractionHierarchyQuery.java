@@ -0,0 +1,176 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// Answers point-to-point queries on a ContractionHierarchy with a bidirectional search
+// that only follows edges to more important nodes. The distance and queue arrays are
+// kept between queries and only the touched entries are reset, so a query costs time
+// proportional to the small upward search space. A query object is not thread-safe.
+// A query on an interrupted thread stops with a CancellationException, and the work of
+// every query is reported to GraphMetrics, as with DijkstraSearch.
+public class ContractionHierarchyQuery<T> {
+
+    private static final int FORWARD = 0;
+    private static final int BACKWARD = 1;
+
+    private final ContractionHierarchy<T> hierarchy;
+
+    // Per direction and id: best known distance and previous node id
+    private final int[][] distances;
+    private final int[][] previous;
+
+    private final IndexedMinHeap[] queues;
+
+    // Ids whose distances have to be reset before the next query
+    private final int[] touched;
+    private int touchedCount;
+
+    // Work done by the last query: nodes taken off either queue, distances improved, and
+    // the largest number of nodes queued at once
+    private int settledCount;
+    private int relaxedCount;
+    private int queuePeak;
+
+    public ContractionHierarchyQuery(ContractionHierarchy<T> hierarchy) {
+        this.hierarchy = hierarchy;
+        int n = hierarchy.getNodeCount();
+        distances = new int[2][n];
+        previous = new int[2][n];
+        Arrays.fill(distances[FORWARD], Integer.MAX_VALUE);
+        Arrays.fill(distances[BACKWARD], Integer.MAX_VALUE);
+        queues = new IndexedMinHeap[] {new IndexedMinHeap(n), new IndexedMinHeap(n)};
+        touched = new int[Math.max(n, 1)];
+    }
+
+    // Returns the shortest path from 'from' to 'to' as original graph edges, or null if
+    // no path exists
+    public List<Edge<T>> findPath(T from, T to) {
+        int source = hierarchy.idOf(from);
+        int target = hierarchy.idOf(to);
+        reset();
+        if (source == target) {
+            settledCount = 1;
+            searchFinished();
+            return new ArrayList<>();
+        }
+
+        int[] offsets = hierarchy.getUpOffsets();
+        int[] targets = hierarchy.getUpTargets();
+        int[] weights = hierarchy.getUpWeights();
+
+        relax(FORWARD, source, 0, -1);
+        relax(BACKWARD, target, 0, -1);
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        int side = BACKWARD;
+
+        while (true) {
+            // Each side stops on its own once its smallest key cannot improve the best path
+            boolean forwardDone = queues[FORWARD].isEmpty() || queues[FORWARD].peekKey() >= best;
+            boolean backwardDone = queues[BACKWARD].isEmpty() || queues[BACKWARD].peekKey() >= best;
+            if (forwardDone && backwardDone) {
+                break;
+            }
+            side = forwardDone ? BACKWARD : backwardDone ? FORWARD : 1 - side;
+
+            int current = queues[side].poll();
+            settledCount++;
+            checkInterrupted();
+            int distance = distances[side][current];
+            int otherDistance = distances[1 - side][current];
+            if (otherDistance != Integer.MAX_VALUE && (long) distance + otherDistance < best) {
+                best = (long) distance + otherDistance;
+                meeting = current;
+            }
+
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int next = targets[i];
+                int nextDistance = distance + weights[i];
+                if (nextDistance < distances[side][next]) {
+                    relax(side, next, nextDistance, current);
+                }
+            }
+        }
+        searchFinished();
+
+        // No path found
+        if (meeting < 0) {
+            return null;
+        }
+        return gatherPath(source, target, meeting);
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public int getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    public int getQueuePeak() {
+        return queuePeak;
+    }
+
+    private void relax(int side, int node, int distance, int previousNode) {
+        if (distances[FORWARD][node] == Integer.MAX_VALUE && distances[BACKWARD][node] == Integer.MAX_VALUE) {
+            touched[touchedCount++] = node;
+        }
+        distances[side][node] = distance;
+        previous[side][node] = previousNode;
+        queues[side].insertOrDecrease(node, distance);
+        relaxedCount++;
+        int queued = queues[FORWARD].size() + queues[BACKWARD].size();
+        if (queued > queuePeak) {
+            queuePeak = queued;
+        }
+    }
+
+    private void searchFinished() {
+        GraphMetrics.searched(settledCount, relaxedCount, queuePeak);
+    }
+
+    private void checkInterrupted() {
+        if (settledCount % DijkstraSearch.INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search was interrupted");
+        }
+    }
+
+    // Unpacks the upward path from the start to the meeting node and the downward path
+    // from the meeting node to the target
+    private List<Edge<T>> gatherPath(int source, int target, int meeting) {
+        ArrayList<Integer> upward = new ArrayList<>();
+        for (int current = meeting; current != source; current = previous[FORWARD][current]) {
+            upward.add(current);
+        }
+        Collections.reverse(upward);
+
+        ArrayList<Edge<T>> path = new ArrayList<>();
+        int current = source;
+        for (int next : upward) {
+            hierarchy.unpack(current, next, path);
+            current = next;
+        }
+        while (current != target) {
+            int next = previous[BACKWARD][current];
+            hierarchy.unpack(current, next, path);
+            current = next;
+        }
+        return path;
+    }
+
+    private void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            distances[FORWARD][touched[i]] = Integer.MAX_VALUE;
+            distances[BACKWARD][touched[i]] = Integer.MAX_VALUE;
+        }
+        touchedCount = 0;
+        queues[FORWARD].clear();
+        queues[BACKWARD].clear();
+        settledCount = 0;
+        relaxedCount = 0;
+        queuePeak = 0;
+    }
+}
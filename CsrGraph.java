@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// A frozen snapshot of a graph in compressed sparse row form. Every node gets a dense
+// int id and the edges of node i are stored at positions offsets[i] .. offsets[i + 1] - 1
+// of the targets, weights and names arrays. Queries run on primitive arrays only.
+// Connection weights can still be changed, but nodes and connections cannot.
+public class CsrGraph<T> implements Graph<T> {
+
+    private final T[] nodes;
+    private final HashMap<T, Integer> ids;
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final String[] names;
+
+    @SuppressWarnings("unchecked")
+    public CsrGraph(Graph<T> graph) {
+        Set<T> graphNodes = graph.getNodes();
+        nodes = (T[]) graphNodes.toArray();
+        ids = new HashMap<>(nodes.length * 4 / 3 + 1);
+        for (int i = 0; i < nodes.length; i++) {
+            ids.put(nodes[i], i);
+        }
+
+        offsets = new int[nodes.length + 1];
+        for (int i = 0; i < nodes.length; i++) {
+            offsets[i + 1] = offsets[i] + graph.getEdgesFrom(nodes[i]).size();
+        }
+
+        int edgeCount = offsets[nodes.length];
+        targets = new int[edgeCount];
+        weights = new int[edgeCount];
+        names = new String[edgeCount];
+        for (int i = 0; i < nodes.length; i++) {
+            int position = offsets[i];
+            for (Edge<T> edge : graph.getEdgesFrom(nodes[i])) {
+                targets[position] = ids.get(edge.getDestination());
+                weights[position] = edge.getWeight();
+                names[position] = edge.getName();
+                position++;
+            }
+        }
+    }
+
+    public void add(T node) {
+        throw new UnsupportedOperationException("Graph is frozen");
+    }
+
+    public void remove(T node) {
+        throw new UnsupportedOperationException("Graph is frozen");
+    }
+
+    public void connect(T node1, T node2, String name, int weight) {
+        throw new UnsupportedOperationException("Graph is frozen");
+    }
+
+    public void disconnect(T node1, T node2) {
+        throw new UnsupportedOperationException("Graph is frozen");
+    }
+
+    // Sets a new weight for the edge between two nodes, in both directions
+    public void setConnectionWeight(T node1, T node2, int newWeight) {
+        int id1 = idOf(node1);
+        int id2 = idOf(node2);
+        if (newWeight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+
+        int edge = edgeIndex(id1, id2);
+        int edge2 = edgeIndex(id2, id1);
+        if (edge < 0 || edge2 < 0) {
+            throw new NoSuchElementException("No edge found between the two nodes");
+        }
+        weights[edge] = newWeight;
+        weights[edge2] = newWeight;
+    }
+
+    public Set<T> getNodes() {
+        return new HashSet<>(Arrays.asList(nodes));
+    }
+
+    // Returns copies of the edges from a given node; changing their weight does not
+    // change the graph
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        int id = idOf(node);
+        ArrayList<Edge<T>> edges = new ArrayList<>(offsets[id + 1] - offsets[id]);
+        for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+            edges.add(edgeAt(i));
+        }
+        return Collections.unmodifiableList(edges);
+    }
+
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        int id1 = idOf(node1);
+        int id2 = idOf(node2);
+        int edge = edgeIndex(id1, id2);
+        return edge < 0 ? null : edgeAt(edge);
+    }
+
+    public boolean pathExists(T from, T to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return false;
+        }
+
+        // Breadth-first search with an array queue
+        boolean[] visited = new boolean[nodes.length];
+        int[] queue = new int[nodes.length];
+        int head = 0;
+        int tail = 0;
+        visited[source] = true;
+        queue[tail++] = source;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == target) {
+                return true;
+            }
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int next = targets[i];
+                if (!visited[next]) {
+                    visited[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Returns the shortest path from 'from' to 'to' using Dijkstra's algorithm on the
+    // primitive arrays, or null if no path exists
+    public List<Edge<T>> getPath(T from, T to) {
+        long start = GraphMetrics.start();
+        List<Edge<T>> path = findPath(from, to);
+        GraphMetrics.pathFound(start);
+        return path;
+    }
+
+    private List<Edge<T>> findPath(T from, T to) {
+        int source = idOf(from);
+        Integer target = ids.get(to);
+        if (target == null) {
+            return null;
+        }
+
+        int[] distances = new int[nodes.length];
+        int[] previousEdges = new int[nodes.length];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        IndexedMinHeap queue = new IndexedMinHeap(nodes.length);
+        distances[source] = 0;
+        previousEdges[source] = -1;
+        queue.insert(source, 0);
+        int settled = 0;
+        int relaxed = 0;
+        int queuePeak = 1;
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            settled++;
+            if (current == target) {
+                GraphMetrics.searched(settled, relaxed, queuePeak);
+                return gatherPath(source, target, previousEdges);
+            }
+
+            int distance = distances[current];
+            for (int i = offsets[current]; i < offsets[current + 1]; i++) {
+                int next = targets[i];
+                int nextDistance = distance + weights[i];
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    previousEdges[next] = i;
+                    queue.insertOrDecrease(next, nextDistance);
+                    relaxed++;
+                    queuePeak = Math.max(queuePeak, queue.size());
+                }
+            }
+        }
+
+        // No path found
+        GraphMetrics.searched(settled, relaxed, queuePeak);
+        return null;
+    }
+
+    // Returns the dense id of a node
+    public int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new NoSuchElementException("Node not found in graph");
+        }
+        return id;
+    }
+
+    public T nodeOf(int id) {
+        return nodes[id];
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    // Returns a string showing each node and its edges
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (T node : nodes) {
+            sb.append(node).append(":").append(getEdgesFrom(node)).append("\n");
+        }
+        return sb.toString();
+    }
+
+    // Builds the path by walking backward through the recorded edge positions
+    private List<Edge<T>> gatherPath(int source, int target, int[] previousEdges) {
+        ArrayList<Edge<T>> path = new ArrayList<>();
+        for (int current = target; current != source; ) {
+            int edge = previousEdges[current];
+            path.add(edgeAt(edge));
+            current = sourceOf(edge);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Finds the node whose edge range contains the given edge position
+    private int sourceOf(int edge) {
+        int low = 0;
+        int high = nodes.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private int edgeIndex(int from, int to) {
+        for (int i = offsets[from]; i < offsets[from + 1]; i++) {
+            if (targets[i] == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Edge<T> edgeAt(int position) {
+        return new Edge<>(nodes[targets[position]], weights[position], names[position]);
+    }
+}
@@ -0,0 +1,221 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// Point-to-point Dijkstra search over any Graph, backed by an indexed binary heap.
+// Nodes get dense int ids as they are discovered, so the work and memory of a query
+// grow with the part of the graph that is explored, not with the whole graph.
+// With a heuristic the search becomes A*: nodes are ordered by distance plus estimate.
+// A search on an interrupted thread stops with a CancellationException. The work of every
+// search is reported to GraphMetrics.
+public class DijkstraSearch<T> {
+
+    // Settled nodes between checks for interruption
+    static final int INTERRUPT_CHECK_INTERVAL = 1024;
+
+    private final Graph<T> graph;
+    private final Heuristic<T> heuristic;
+
+    // Dense ids for the nodes discovered by the current search
+    private final HashMap<T, Integer> ids = new HashMap<>();
+    private final ArrayList<T> nodesById = new ArrayList<>();
+
+    // Per id: best known distance, previous node id and the edge used to get there
+    private int[] distances = new int[16];
+    private int[] previous = new int[16];
+    private final ArrayList<Edge<T>> previousEdges = new ArrayList<>();
+
+    private final IndexedMinHeap queue = new IndexedMinHeap();
+
+    // Id of the node the last search started from
+    private int lastSource;
+
+    // Number of nodes taken off the queue during the last search
+    private int settledCount;
+
+    // Number of shorter distances found, and the largest queue, during the last search
+    private int relaxedCount;
+    private int queuePeak;
+
+    public DijkstraSearch(Graph<T> graph) {
+        this(graph, null);
+    }
+
+    public DijkstraSearch(Graph<T> graph, Heuristic<T> heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+
+    // Returns the shortest path from 'from' to 'to', or null if 'to' cannot be reached.
+    // The search stops as soon as 'to' is settled. If the heuristic overestimates, a node
+    // that was already settled is queued again when a shorter way to it is found.
+    public List<Edge<T>> findPath(T from, T to) {
+        reset();
+        int source = idOf(from);
+        int target = idOf(to);
+        distances[source] = 0;
+        queue.insert(source, estimate(from, to));
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            settledCount++;
+            checkInterrupted();
+            if (current == target) {
+                searchFinished();
+                return gatherPath(source, target);
+            }
+
+            int distance = distances[current];
+            for (Edge<T> edge : graph.getEdgesFrom(nodesById.get(current))) {
+                int next = idOf(edge.getDestination());
+                int nextDistance = distance + edge.getWeight();
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    previous[next] = current;
+                    previousEdges.set(next, edge);
+                    queue.insertOrDecrease(next, nextDistance + estimate(edge.getDestination(), to));
+                    relaxed();
+                }
+            }
+        }
+
+        // No path found
+        searchFinished();
+        return null;
+    }
+
+    // Runs one search from 'from' that stops once every target is settled and returns the
+    // distance to each target, or Integer.MAX_VALUE for targets that cannot be reached.
+    // Afterwards pathTo gives the paths to the same targets.
+    public int[] findDistances(T from, List<T> targets) {
+        reset();
+        int source = idOf(from);
+        lastSource = source;
+        int remaining = 0;
+        int[] targetIds = new int[targets.size()];
+        for (int i = 0; i < targetIds.length; i++) {
+            targetIds[i] = idOf(targets.get(i));
+        }
+        boolean[] isTarget = new boolean[nodesById.size()];
+        for (int target : targetIds) {
+            if (!isTarget[target]) {
+                isTarget[target] = true;
+                remaining++;
+            }
+        }
+        distances[source] = 0;
+        queue.insert(source, 0);
+
+        while (!queue.isEmpty() && remaining > 0) {
+            int current = queue.poll();
+            settledCount++;
+            checkInterrupted();
+            if (current < isTarget.length && isTarget[current]) {
+                remaining--;
+            }
+
+            int distance = distances[current];
+            for (Edge<T> edge : graph.getEdgesFrom(nodesById.get(current))) {
+                int next = idOf(edge.getDestination());
+                int nextDistance = distance + edge.getWeight();
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    previous[next] = current;
+                    previousEdges.set(next, edge);
+                    queue.insertOrDecrease(next, nextDistance);
+                    relaxed();
+                }
+            }
+        }
+        searchFinished();
+
+        int[] result = new int[targetIds.length];
+        for (int i = 0; i < targetIds.length; i++) {
+            result[i] = distances[targetIds[i]];
+        }
+        return result;
+    }
+
+    // Returns the path to one of the targets of the last findDistances call, or null if
+    // it cannot be reached
+    public List<Edge<T>> pathTo(T target) {
+        Integer id = ids.get(target);
+        if (id == null || distances[id] == Integer.MAX_VALUE) {
+            return null;
+        }
+        return gatherPath(lastSource, id);
+    }
+
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    public int getRelaxedCount() {
+        return relaxedCount;
+    }
+
+    public int getQueuePeak() {
+        return queuePeak;
+    }
+
+    private void relaxed() {
+        relaxedCount++;
+        if (queue.size() > queuePeak) {
+            queuePeak = queue.size();
+        }
+    }
+
+    private void searchFinished() {
+        GraphMetrics.searched(settledCount, relaxedCount, queuePeak);
+    }
+
+    private void checkInterrupted() {
+        if (settledCount % INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search was interrupted");
+        }
+    }
+
+    private int estimate(T node, T target) {
+        return heuristic == null ? 0 : heuristic.estimate(node, target);
+    }
+
+    // Builds the path by walking backward through the recorded predecessor edges
+    private List<Edge<T>> gatherPath(int source, int target) {
+        ArrayList<Edge<T>> path = new ArrayList<>();
+        for (int current = target; current != source; current = previous[current]) {
+            path.add(previousEdges.get(current));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodesById.size();
+            ids.put(node, id);
+            nodesById.add(node);
+            previousEdges.add(null);
+            if (id == distances.length) {
+                distances = Arrays.copyOf(distances, id * 2);
+                previous = Arrays.copyOf(previous, id * 2);
+            }
+            distances[id] = Integer.MAX_VALUE;
+            previous[id] = -1;
+        }
+        return id;
+    }
+
+    private void reset() {
+        ids.clear();
+        nodesById.clear();
+        previousEdges.clear();
+        queue.clear();
+        settledCount = 0;
+        relaxedCount = 0;
+        queuePeak = 0;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Shortest distances from every source to every target, stored row by row in one flat
+// int array. It is computed with one single-source search per source, which stops once
+// all targets are settled, and the searches run in parallel on a ForkJoinPool. The graph
+// must not change while the matrix is being computed.
+public class DistanceMatrix<T> {
+
+    // The distance stored for a target that cannot be reached from a source
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final List<T> sources;
+    private final List<T> targets;
+
+    // distances[row * targets.size() + column]
+    private final int[] distances;
+
+    // The paths in the same order, or null if they were not requested
+    private final List<List<Edge<T>>> paths;
+
+    // One task per range of sources; small ranges are searched with a single reused search
+    private class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Graph<T> graph;
+        private final int start;
+        private final int end;
+        private final int threshold;
+
+        Rows(Graph<T> graph, int start, int end, int threshold) {
+            this.graph = graph;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > threshold) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Rows(graph, start, middle, threshold), new Rows(graph, middle, end, threshold));
+                return;
+            }
+
+            DijkstraSearch<T> search = new DijkstraSearch<>(graph);
+            int columns = targets.size();
+            for (int row = start; row < end; row++) {
+                int[] rowDistances = search.findDistances(sources.get(row), targets);
+                System.arraycopy(rowDistances, 0, distances, row * columns, columns);
+                if (paths != null) {
+                    for (int column = 0; column < columns; column++) {
+                        paths.set(row * columns + column, search.pathTo(targets.get(column)));
+                    }
+                }
+            }
+        }
+    }
+
+    private DistanceMatrix(Collection<T> sources, Collection<T> targets, boolean withPaths) {
+        this.sources = new ArrayList<>(sources);
+        this.targets = new ArrayList<>(targets);
+        int size = this.sources.size() * this.targets.size();
+        this.distances = new int[size];
+        if (withPaths) {
+            paths = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                paths.add(null);
+            }
+        } else {
+            paths = null;
+        }
+    }
+
+    // Computes the matrix on the common ForkJoinPool
+    public static <T> DistanceMatrix<T> compute(Graph<T> graph, Collection<T> sources, Collection<T> targets,
+            boolean withPaths) {
+        return compute(graph, sources, targets, withPaths, ForkJoinPool.commonPool());
+    }
+
+    public static <T> DistanceMatrix<T> compute(Graph<T> graph, Collection<T> sources, Collection<T> targets,
+            boolean withPaths, ForkJoinPool pool) {
+        DistanceMatrix<T> matrix = new DistanceMatrix<>(sources, targets, withPaths);
+
+        // Check every node up front rather than failing in the middle of the searches
+        for (T node : matrix.sources) {
+            graph.getEdgesFrom(node);
+        }
+        for (T node : matrix.targets) {
+            graph.getEdgesFrom(node);
+        }
+
+        int rows = matrix.sources.size();
+        if (rows > 0 && !matrix.targets.isEmpty()) {
+            int threshold = Math.max(1, rows / (pool.getParallelism() * 4));
+            pool.invoke(matrix.new Rows(graph, 0, rows, threshold));
+        }
+        return matrix;
+    }
+
+    public List<T> getSources() {
+        return sources;
+    }
+
+    public List<T> getTargets() {
+        return targets;
+    }
+
+    // Returns the distance from sources[row] to targets[column], or UNREACHABLE
+    public int getDistance(int row, int column) {
+        return distances[index(row, column)];
+    }
+
+    // Returns all distances row by row; the array is not copied
+    public int[] getDistances() {
+        return distances;
+    }
+
+    // Returns the path from sources[row] to targets[column], or null if there is none
+    public List<Edge<T>> getPath(int row, int column) {
+        if (paths == null) {
+            throw new IllegalStateException("Paths were not computed");
+        }
+        return paths.get(index(row, column));
+    }
+
+    private int index(int row, int column) {
+        if (row < 0 || row >= sources.size() || column < 0 || column >= targets.size()) {
+            throw new IndexOutOfBoundsException("No such cell in matrix");
+        }
+        return row * targets.size() + column;
+    }
+}
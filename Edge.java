@@ -39,6 +39,6 @@ public class Edge<T> {
 
     @Override
     public String toString() {
-        return "to " + destination + " by " + name + " takes " + weight;
+        return "to " + getDestination() + " by " + getName() + " takes " + getWeight();
     }
 }
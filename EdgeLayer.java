@@ -0,0 +1,211 @@
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Draws the connections of a graph onto a single Canvas, instead of one Line node per
+// connection. As a listener on the graph it marks the area a change touches as dirty, and
+// the dirty areas are redrawn together once per pulse: only connections that cross them
+// are stroked, all in one path. When zoomed out below DETAIL_SCALE, connections shorter
+// than a few pixels on screen are skipped and the rest are drawn thin, and places can be
+// drawn as dots. Coordinates are map pixels; the scale maps them to the canvas.
+public class EdgeLayer<T extends Place> extends Canvas implements GraphListener<T> {
+
+    // Below this scale the simplified rendering is used
+    public static final double DETAIL_SCALE = 0.5;
+
+    // Connections shorter than this on screen are not drawn in simplified rendering
+    private static final double MIN_PIXELS = 3;
+
+    // More dirty areas than this are merged into one
+    private static final int MAX_DIRTY_REGIONS = 16;
+
+    private static final double LINE_WIDTH = 2;
+
+    private Graph<T> graph;
+    private SpatialIndex<T> index;
+
+    private double scale = 1;
+    private boolean drawPlaces;
+
+    // The longest connection seen, so a redraw knows how far around an area to look for
+    // the places whose connections cross it. It never shrinks.
+    private double maxLength;
+
+    // Dirty areas in map pixels as {minX, minY, maxX, maxY}, redrawn on the next pulse
+    private final List<double[]> dirty = new ArrayList<>();
+    private boolean redrawScheduled;
+
+    private long redraws;
+    private long edgesDrawn;
+
+    public EdgeLayer() {
+        setMouseTransparent(true);
+    }
+
+    // Draws a graph whose places are all in 'index'. Both must be kept up to date, with
+    // the index registered on the graph before this layer.
+    public void show(Graph<T> graph, SpatialIndex<T> index) {
+        this.graph = graph;
+        this.index = index;
+        maxLength = 0;
+        for (T node : graph.getNodes()) {
+            for (Edge<T> edge : graph.getEdgesFrom(node)) {
+                maxLength = Math.max(maxLength, length(node, edge.getDestination()));
+            }
+        }
+        markAllDirty();
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void setScale(double scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+        this.scale = scale;
+        markAllDirty();
+    }
+
+    public boolean isDrawPlaces() {
+        return drawPlaces;
+    }
+
+    // Whether places are drawn as dots in simplified rendering, where their own nodes
+    // would be too small to see
+    public void setDrawPlaces(boolean drawPlaces) {
+        this.drawPlaces = drawPlaces;
+        markAllDirty();
+    }
+
+    public long getRedrawCount() {
+        return redraws;
+    }
+
+    public long getEdgesDrawn() {
+        return edgesDrawn;
+    }
+
+    public void nodeAdded(T node) {
+        markDirty(node.getX(), node.getY(), node.getX(), node.getY());
+    }
+
+    // The connections of a removed node are gone from the graph, but none of them reached
+    // further than the longest connection
+    public void nodeRemoved(T node) {
+        markDirty(node.getX() - maxLength, node.getY() - maxLength,
+                node.getX() + maxLength, node.getY() + maxLength);
+    }
+
+    public void connected(T node1, T node2, String name, int weight) {
+        maxLength = Math.max(maxLength, length(node1, node2));
+        markDirty(node1, node2);
+    }
+
+    public void disconnected(T node1, T node2) {
+        markDirty(node1, node2);
+    }
+
+    private void markDirty(T node1, T node2) {
+        markDirty(Math.min(node1.getX(), node2.getX()), Math.min(node1.getY(), node2.getY()),
+                Math.max(node1.getX(), node2.getX()), Math.max(node1.getY(), node2.getY()));
+    }
+
+    // Queues an area of the map for redrawing, widened by the line width
+    public void markDirty(double minX, double minY, double maxX, double maxY) {
+        double margin = LINE_WIDTH;
+        dirty.add(new double[] { minX - margin, minY - margin, maxX + margin, maxY + margin });
+        if (dirty.size() > MAX_DIRTY_REGIONS) {
+            double[] merged = dirty.get(0);
+            for (double[] region : dirty) {
+                merged[0] = Math.min(merged[0], region[0]);
+                merged[1] = Math.min(merged[1], region[1]);
+                merged[2] = Math.max(merged[2], region[2]);
+                merged[3] = Math.max(merged[3], region[3]);
+            }
+            dirty.clear();
+            dirty.add(merged);
+        }
+        if (!redrawScheduled) {
+            redrawScheduled = true;
+            Platform.runLater(this::redraw);
+        }
+    }
+
+    public void markAllDirty() {
+        markDirty(0, 0, getWidth() / scale, getHeight() / scale);
+    }
+
+    // Redraws every dirty area now
+    public void redraw() {
+        redrawScheduled = false;
+        GraphicsContext context = getGraphicsContext2D();
+        for (double[] region : dirty) {
+            redraw(context, region[0], region[1], region[2], region[3]);
+        }
+        dirty.clear();
+        redraws++;
+    }
+
+    private void redraw(GraphicsContext context, double minX, double minY, double maxX, double maxY) {
+        context.save();
+        context.beginPath();
+        context.rect(minX * scale, minY * scale, (maxX - minX) * scale, (maxY - minY) * scale);
+        context.clip();
+        context.clearRect(minX * scale, minY * scale, (maxX - minX) * scale, (maxY - minY) * scale);
+        if (graph == null) {
+            context.restore();
+            return;
+        }
+
+        boolean simplified = scale < DETAIL_SCALE;
+        double minLength = simplified ? MIN_PIXELS / scale : 0;
+
+        // A connection that crosses the area has an end within half its length of it
+        double reach = maxLength / 2;
+        List<T> nearby = index.inRectangle(minX - reach, minY - reach, maxX + reach, maxY + reach);
+        Set<T> done = new HashSet<>();
+        context.beginPath();
+        for (T source : nearby) {
+            for (Edge<T> edge : graph.getEdgesFrom(source)) {
+                T destination = edge.getDestination();
+                if (done.contains(destination) || !crosses(source, destination, minX, minY, maxX, maxY)
+                        || length(source, destination) < minLength) {
+                    continue;
+                }
+                context.moveTo(source.getX() * scale, source.getY() * scale);
+                context.lineTo(destination.getX() * scale, destination.getY() * scale);
+                edgesDrawn++;
+            }
+            done.add(source);
+        }
+        context.setStroke(Color.BLACK);
+        context.setLineWidth(simplified ? 1 : LINE_WIDTH);
+        context.stroke();
+
+        if (simplified && drawPlaces) {
+            context.setFill(Color.BLUE);
+            for (T place : nearby) {
+                context.fillRect(place.getX() * scale - 1, place.getY() * scale - 1, 2, 2);
+            }
+        }
+        context.restore();
+    }
+
+    // Whether the bounding box of a connection overlaps an area
+    private static boolean crosses(Place from, Place to, double minX, double minY, double maxX, double maxY) {
+        return Math.max(from.getX(), to.getX()) >= minX && Math.min(from.getX(), to.getX()) <= maxX
+                && Math.max(from.getY(), to.getY()) >= minY && Math.min(from.getY(), to.getY()) <= maxY;
+    }
+
+    private static double length(Place from, Place to) {
+        return Math.hypot(from.getX() - to.getX(), from.getY() - to.getY());
+    }
+}
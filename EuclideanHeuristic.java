@@ -0,0 +1,40 @@
+// A* heuristic for cities: the straight-line distance between their centers, in pixels,
+// multiplied by the minimum cost per pixel of any connection. As long as no connection
+// is cheaper per pixel than that, the estimate never exceeds the real travel time.
+public class EuclideanHeuristic implements Heuristic<City> {
+
+    private final double costPerPixel;
+
+    public EuclideanHeuristic(double costPerPixel) {
+        if (costPerPixel < 0) {
+            throw new IllegalArgumentException("Cost per pixel cannot be negative");
+        }
+        this.costPerPixel = costPerPixel;
+    }
+
+    // Creates a heuristic using the lowest cost per pixel found among the graph's connections
+    public static EuclideanHeuristic forGraph(Graph<City> graph) {
+        double minimum = Double.POSITIVE_INFINITY;
+        for (City city : graph.getNodes()) {
+            for (Edge<City> edge : graph.getEdgesFrom(city)) {
+                double length = distance(city, edge.getDestination());
+                if (length > 0) {
+                    minimum = Math.min(minimum, edge.getWeight() / length);
+                }
+            }
+        }
+        return new EuclideanHeuristic(minimum == Double.POSITIVE_INFINITY ? 0 : minimum);
+    }
+
+    public double getCostPerPixel() {
+        return costPerPixel;
+    }
+
+    public int estimate(City node, City target) {
+        return (int) (distance(node, target) * costPerPixel);
+    }
+
+    private static double distance(City city1, City city2) {
+        return Math.hypot(city1.getCenterX() - city2.getCenterX(), city1.getCenterY() - city2.getCenterY());
+    }
+}
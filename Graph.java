@@ -1,4 +1,5 @@
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -14,6 +15,30 @@ public interface Graph<T> {
     // Changes the weight of an existing connection between two nodes
     void setConnectionWeight(T node1, T node2, int weight);
 
+    // Adds every node that is not in the graph yet. Implementations may do this faster
+    // than one add at a time.
+    default void addAll(Collection<? extends T> nodes) {
+        for (T node : nodes) {
+            add(node);
+        }
+    }
+
+    // Makes every connection in the batch. Implementations may check the whole batch
+    // first and make it all or nothing; this default stops at the first failure.
+    default void connectAll(Collection<? extends Connection<T>> connections) {
+        for (Connection<T> connection : connections) {
+            connect(connection.getNode1(), connection.getNode2(), connection.getName(), connection.getWeight());
+        }
+    }
+
+    // Applies every weight update in the batch, in order. Implementations may check the
+    // whole batch first and make it all or nothing; this default stops at the first failure.
+    default void setConnectionWeights(Collection<? extends WeightUpdate<T>> updates) {
+        for (WeightUpdate<T> update : updates) {
+            setConnectionWeight(update.getNode1(), update.getNode2(), update.getWeight());
+        }
+    }
+
     // Returns all nodes in the graph
     Set<T> getNodes();
 
@@ -34,4 +59,25 @@ public interface Graph<T> {
 
     // Returns a list of edges representing the path between two nodes
     List<Edge<T>> getPath(T from, T to);
+
+    // Returns the shortest path between two nodes using A* search guided by the heuristic
+    default List<Edge<T>> getPath(T from, T to, Heuristic<T> heuristic) {
+        return new DijkstraSearch<>(this, heuristic).findPath(from, to);
+    }
+
+    // Returns up to k shortest loopless paths between two nodes, shortest first. The paths
+    // are found lazily, so callers can stop early.
+    default Iterator<List<Edge<T>>> getPaths(T from, T to, int k) {
+        return new KShortestPaths<>(this, from, to, k);
+    }
+
+    // Returns the shortest paths from one node to every other node
+    default ShortestPathTree<T> shortestPathTree(T from) {
+        return new ShortestPathTree<>(this, from);
+    }
+
+    // Returns the shortest distances from every source to every target, computed in parallel
+    default DistanceMatrix<T> distanceMatrix(Collection<T> sources, Collection<T> targets) {
+        return DistanceMatrix.compute(this, sources, targets, false);
+    }
 }
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Synthetic graphs for benchmarks. Nodes are the Integers 0 .. n - 1. The geometric
+// generators also fill in a position (x, y) in pixels for every node.
+public class GraphGenerators {
+
+    // The size of europa.gif, used by europaReplica
+    private static final int MAP_WIDTH = 1200;
+    private static final int MAP_HEIGHT = 800;
+
+    private GraphGenerators() {
+    }
+
+    // Builds a side x side grid with random weights between 1 and 100
+    public static ListGraph<Integer> grid(int side, Random random) {
+        ListGraph<Integer> graph = nodes(side * side);
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int node = row * side + col;
+                if (col + 1 < side) {
+                    graph.connect(node, node + 1, "road", 1 + random.nextInt(100));
+                }
+                if (row + 1 < side) {
+                    graph.connect(node, node + side, "road", 1 + random.nextInt(100));
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Builds a side x side jittered grid of points, 100 pixels apart, where every
+    // connection costs between 1 and 1.5 times its straight-line length
+    public static ListGraph<Integer> planarMap(int side, Random random, double[][] positions) {
+        ListGraph<Integer> graph = nodes(side * side);
+        for (int i = 0; i < side * side; i++) {
+            positions[i] = new double[] {
+                    (i % side) * 100 + random.nextDouble() * 60, (i / side) * 100 + random.nextDouble() * 60};
+        }
+        for (int node = 0; node < side * side; node++) {
+            if (node % side + 1 < side) {
+                connectByDistance(graph, positions, node, node + 1, random);
+            }
+            if (node + side < side * side) {
+                connectByDistance(graph, positions, node, node + side, random);
+            }
+        }
+        return graph;
+    }
+
+    // Builds a random geometric graph: n points spread uniformly over a square with room
+    // for about 'degree' neighbours within 'radius' of each point, connected to all of them
+    public static ListGraph<Integer> randomGeometric(int n, int degree, Random random, double[][] positions) {
+        double radius = 100;
+        double side = Math.sqrt(n * Math.PI * radius * radius / degree);
+        for (int i = 0; i < n; i++) {
+            positions[i] = new double[] {random.nextDouble() * side, random.nextDouble() * side};
+        }
+
+        // Bucket the points into radius-sized cells so only nearby cells are compared
+        int cells = Math.max(1, (int) (side / radius));
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < cells * cells; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            buckets.get(cellOf(positions[i][1], radius, cells) * cells + cellOf(positions[i][0], radius, cells)).add(i);
+        }
+
+        ListGraph<Integer> graph = nodes(n);
+        for (int i = 0; i < n; i++) {
+            int cellX = cellOf(positions[i][0], radius, cells);
+            int cellY = cellOf(positions[i][1], radius, cells);
+            for (int y = Math.max(0, cellY - 1); y <= Math.min(cells - 1, cellY + 1); y++) {
+                for (int x = Math.max(0, cellX - 1); x <= Math.min(cells - 1, cellX + 1); x++) {
+                    for (int other : buckets.get(y * cells + x)) {
+                        if (other > i && distance(positions, i, other) <= radius) {
+                            connectByDistance(graph, positions, i, other, random);
+                        }
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Builds a scale-free graph by preferential attachment (Barabasi-Albert): every new
+    // node connects to 'links' existing nodes chosen in proportion to their degree
+    public static ListGraph<Integer> scaleFree(int n, int links, Random random) {
+        ListGraph<Integer> graph = nodes(n);
+
+        // Every edge adds both its endpoints here, so a uniform pick is degree-weighted
+        int[] endpoints = new int[2 * n * links];
+        int endpointCount = 0;
+        for (int node = 1; node < n; node++) {
+            for (int i = 0; i < Math.min(links, node); i++) {
+                int target = endpointCount == 0 ? 0 : endpoints[random.nextInt(endpointCount)];
+                if (graph.getEdgeBetween(node, target) == null) {
+                    graph.connect(node, target, "link", 1 + random.nextInt(100));
+                    endpoints[endpointCount++] = node;
+                    endpoints[endpointCount++] = target;
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Builds a map with the shape of europa.graph: 'cities' places spread over the
+    // europa.gif canvas, each connected to its three nearest neighbours, with travel
+    // times proportional to distance
+    public static ListGraph<Integer> europaReplica(int cities, Random random, double[][] positions) {
+        for (int i = 0; i < cities; i++) {
+            positions[i] = new double[] {random.nextDouble() * MAP_WIDTH, random.nextDouble() * MAP_HEIGHT};
+        }
+
+        ListGraph<Integer> graph = nodes(cities);
+        for (int i = 0; i < cities; i++) {
+            for (int k = 0; k < 3; k++) {
+                int nearest = -1;
+                for (int other = 0; other < cities; other++) {
+                    if (other != i && graph.getEdgeBetween(i, other) == null
+                            && (nearest < 0 || distance(positions, i, other) < distance(positions, i, nearest))) {
+                        nearest = other;
+                    }
+                }
+                if (nearest >= 0) {
+                    graph.connect(i, nearest, "road", (int) Math.ceil(distance(positions, i, nearest) / 10));
+                }
+            }
+        }
+        return graph;
+    }
+
+    // Returns every connection once, as {node1, node2, weight} with node1 < node2
+    public static int[][] connections(Graph<Integer> graph) {
+        List<int[]> connections = new ArrayList<>();
+        for (int node : graph.getNodes()) {
+            for (Edge<Integer> edge : graph.getEdgesFrom(node)) {
+                if (node < edge.getDestination()) {
+                    connections.add(new int[] {node, edge.getDestination(), edge.getWeight()});
+                }
+            }
+        }
+        return connections.toArray(new int[0][]);
+    }
+
+    private static ListGraph<Integer> nodes(int n) {
+        ListGraph<Integer> graph = new ListGraph<>();
+        for (int i = 0; i < n; i++) {
+            graph.add(i);
+        }
+        return graph;
+    }
+
+    private static void connectByDistance(ListGraph<Integer> graph, double[][] positions, int node1, int node2,
+            Random random) {
+        double length = distance(positions, node1, node2);
+        graph.connect(node1, node2, "road", (int) Math.ceil(length * (1 + random.nextDouble() * 0.5)));
+    }
+
+    private static double distance(double[][] positions, int node1, int node2) {
+        return Math.hypot(positions[node1][0] - positions[node2][0], positions[node1][1] - positions[node2][1]);
+    }
+
+    private static int cellOf(double coordinate, double radius, int cells) {
+        return Math.min(cells - 1, (int) (coordinate / radius));
+    }
+}
@@ -0,0 +1,323 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+// An append-only log of the changes made to a graph of places since its .graph snapshot
+// was written. Registered as a listener, it writes every change as one line the moment
+// it happens, so a crash loses nothing:
+//
+//   A;name;x;y                 place added
+//   R;name                     place removed
+//   C;from;to;weight;name      connection made
+//   D;from;to                  connection removed
+//   W;from;to;weight           weight changed
+//   S                          saved: everything above is part of the map
+//
+// Saving only appends the S line, so it costs as much as the changes since the last save.
+// Compaction writes a new snapshot and empties the journal. Until then the snapshot alone
+// is out of date, so everything that reads a saved map applies the saved part of its
+// journal, with replaySaved. Replaying is idempotent, because a change whose place or
+// connection is already gone is skipped and a connection that exists is updated, so a
+// crash between writing a snapshot and emptying the journal does no harm.
+//
+// A change that cannot be written does not fail the graph operation that made it. The
+// journal drops its unsaved changes, stops recording and tells the failure listener; it
+// then has to be compacted to catch up with the graph.
+public class GraphJournal<T extends Place> implements GraphListener<T>, Closeable {
+
+    // Journals smaller than this are never worth compacting
+    private static final long COMPACT_MIN_BYTES = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+
+    // Byte offsets of the end of the last S line, and of the end of the journal
+    private long savedEnd;
+    private long end;
+
+    // Changes after the last S line
+    private int unsavedCount;
+
+    // Set when a change could not be written; cleared by compaction
+    private boolean failed;
+
+    // Told when a change could not be written, or null
+    private Consumer<IOException> failureListener;
+
+    private GraphJournal(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    // Returns the journal kept next to a .graph file
+    public static Path journalOf(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".journal");
+    }
+
+    // Opens a journal, creating it if needed. A last line cut short by a crash is dropped.
+    public static <T extends Place> GraphJournal<T> open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        GraphJournal<T> journal = new GraphJournal<>(file, channel);
+        try {
+            journal.scan();
+            if (channel.size() > journal.end) {
+                channel.truncate(journal.end);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    // Applies the saved changes in the journal of a snapshot, if it has one, to a graph
+    // read from the snapshot. The journal is only read. Returns the number of changes applied.
+    public static <T extends Place> int replaySaved(Path snapshot, Graph<T> graph, PlaceFactory<T> factory)
+            throws IOException {
+        Path file = journalOf(snapshot);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            GraphJournal<T> journal = new GraphJournal<>(file, channel);
+            journal.scan();
+            return journal.replay(graph, factory, false);
+        }
+    }
+
+    // Finds the last complete line and the last S line
+    private void scan() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = 0;
+        long lineStart = 0;
+        boolean saveLine = false;
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    end = position + 1;
+                    if (saveLine && end - lineStart == 2) {
+                        savedEnd = end;
+                        unsavedCount = 0;
+                    } else {
+                        unsavedCount++;
+                    }
+                    lineStart = end;
+                } else if (position == lineStart) {
+                    saveLine = b == 'S';
+                }
+                position++;
+            }
+            buffer.clear();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized long size() {
+        return end;
+    }
+
+    // Returns the number of changes recorded after the last save
+    public synchronized int getUnsavedCount() {
+        return unsavedCount;
+    }
+
+    public synchronized void setFailureListener(Consumer<IOException> failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    // Whether a change could not be written, so the journal has to be compacted
+    public synchronized boolean hasFailed() {
+        return failed;
+    }
+
+    // Whether the journal has grown large next to a snapshot of the given size, so that
+    // compacting it would speed up opening the map
+    public synchronized boolean needsCompaction(long snapshotBytes) {
+        return end > Math.max(COMPACT_MIN_BYTES, snapshotBytes / 2);
+    }
+
+    // Applies the saved part of the journal to a graph read from the snapshot, or with
+    // 'unsaved' the changes after the last save. The journal must not be listening to the
+    // graph yet. Returns the number of changes applied.
+    public synchronized int replay(Graph<T> graph, PlaceFactory<T> factory, boolean unsaved) throws IOException {
+        long from = unsaved ? savedEnd : 0;
+        long to = unsaved ? end : savedEnd;
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IOException("Journal is too large to replay");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) {
+            read = channel.read(buffer, from + buffer.position());
+        }
+        String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+
+        HashMap<String, T> places = new HashMap<>();
+        for (T place : graph.getNodes()) {
+            places.put(place.getName(), place);
+        }
+        int applied = 0;
+        int lineNumber = 0;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            String line = text.substring(lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+            lineNumber++;
+            if (line.equals("S")) {
+                continue;
+            }
+            try {
+                apply(line, graph, factory, places);
+            } catch (RuntimeException e) {
+                throw new IOException("Journal " + file + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    private void apply(String line, Graph<T> graph, PlaceFactory<T> factory, HashMap<String, T> places) {
+        String[] fields = line.split(";", 5);
+        T node1 = fields.length > 1 ? places.get(fields[1]) : null;
+        T node2 = fields.length > 2 ? places.get(fields[2]) : null;
+        switch (fields[0]) {
+            case "A":
+                if (node1 == null) {
+                    T place = factory.create(fields[1], Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+                    graph.add(place);
+                    places.put(fields[1], place);
+                }
+                break;
+            case "R":
+                if (node1 != null) {
+                    graph.remove(node1);
+                    places.remove(fields[1]);
+                }
+                break;
+            case "C":
+                if (node1 != null && node2 != null) {
+                    int weight = Integer.parseInt(fields[3]);
+                    if (graph.getEdgeBetween(node1, node2) == null) {
+                        graph.connect(node1, node2, fields[4], weight);
+                    } else {
+                        graph.setConnectionWeight(node1, node2, weight);
+                    }
+                }
+                break;
+            case "D":
+                if (node1 != null && node2 != null && graph.getEdgeBetween(node1, node2) != null) {
+                    graph.disconnect(node1, node2);
+                }
+                break;
+            case "W":
+                if (node1 != null && node2 != null && graph.getEdgeBetween(node1, node2) != null) {
+                    graph.setConnectionWeight(node1, node2, Integer.parseInt(fields[3]));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown change '" + fields[0] + "'");
+        }
+    }
+
+    // Marks everything recorded so far as saved and forces it to disk
+    public synchronized void save() throws IOException {
+        if (failed) {
+            throw new IllegalStateException("Journal " + file + " is missing changes and must be compacted");
+        }
+        append("S");
+        channel.force(false);
+        savedEnd = end;
+        unsavedCount = 0;
+    }
+
+    // Drops the changes recorded after the last save
+    public synchronized void discardUnsaved() throws IOException {
+        channel.truncate(savedEnd);
+        end = savedEnd;
+        unsavedCount = 0;
+    }
+
+    // Writes the graph as a new snapshot and empties the journal. Changes made to the
+    // graph meanwhile would be lost, so it must not change until this returns.
+    public synchronized void compact(Graph<T> graph, GraphWriter<T> writer, Path snapshot) throws IOException {
+        // write() syncs the snapshot and its directory, so the changes are on disk in the
+        // snapshot before they leave the journal
+        writer.write(graph, snapshot);
+        channel.truncate(0);
+        channel.force(false);
+        end = 0;
+        savedEnd = 0;
+        unsavedCount = 0;
+        failed = false;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    public void nodeAdded(T node) {
+        record("A;" + node.getName() + ";" + node.getX() + ";" + node.getY());
+    }
+
+    public void nodeRemoved(T node) {
+        record("R;" + node.getName());
+    }
+
+    public void connected(T node1, T node2, String name, int weight) {
+        record("C;" + node1.getName() + ";" + node2.getName() + ";" + weight + ";" + name);
+    }
+
+    public void disconnected(T node1, T node2) {
+        record("D;" + node1.getName() + ";" + node2.getName());
+    }
+
+    public void weightChanged(T node1, T node2, int oldWeight, int newWeight) {
+        record("W;" + node1.getName() + ";" + node2.getName() + ";" + newWeight);
+    }
+
+    // The graph has already changed when a listener is told, so a failed write must not
+    // throw into the graph; the unsaved changes, now incomplete, are dropped instead
+    private synchronized void record(String line) {
+        if (failed) {
+            return;
+        }
+        try {
+            append(line);
+            unsavedCount++;
+        } catch (IOException e) {
+            failed = true;
+            try {
+                discardUnsaved();
+            } catch (IOException ignored) {
+                // The journal is compacted before it is used again
+            }
+            if (failureListener != null) {
+                failureListener.accept(e);
+            }
+        }
+    }
+
+    // Writes one line with a single write, straight to the operating system
+    private void append(String line) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, end + bytes.position());
+        }
+        end += bytes.capacity();
+    }
+}
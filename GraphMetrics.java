@@ -0,0 +1,263 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide counters for what graph queries, loads and saves cost: latency histograms
+// for getPath and pathExists, nodes settled, edges relaxed and the largest queue of the
+// Dijkstra searches, load and save durations, and the size of a watched graph. Readable
+// over JMX once registered, and as a line printed periodically.
+//
+// Instrumented code calls start() before the work and one of the recording methods after
+// it. While disabled, start() returns 0 without reading the clock and the recording
+// methods return at once, so the cost is one volatile read. Enabled with
+// -Dpathfinder.metrics=true, with setEnabled, or over JMX.
+public class GraphMetrics implements GraphMetricsMBean {
+
+    public static final String OBJECT_NAME = "Pathfinder:type=GraphMetrics";
+
+    private static final GraphMetrics INSTANCE = new GraphMetrics();
+
+    private static volatile boolean enabled = Boolean.getBoolean("pathfinder.metrics");
+
+    private final LatencyHistogram pathLatency = new LatencyHistogram();
+    private final LatencyHistogram pathExistsLatency = new LatencyHistogram();
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder relaxed = new LongAdder();
+    private final LongAccumulator queuePeak = new LongAccumulator(Math::max, 0);
+
+    private final AtomicLong loads = new AtomicLong();
+    private volatile long lastLoadNanos;
+    private volatile long lastLoadLines;
+    private final AtomicLong saves = new AtomicLong();
+    private volatile long lastSaveNanos;
+
+    // The graph whose size is reported, read only when the gauges are
+    private volatile Graph<?> graph;
+
+    private ScheduledExecutorService logger;
+    private ScheduledFuture<?> logging;
+
+    private GraphMetrics() {
+    }
+
+    public static GraphMetrics get() {
+        return INSTANCE;
+    }
+
+    // Returns the time to pass to a recording method, or 0 if metrics are disabled
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void pathFound(long start) {
+        if (start != 0) {
+            INSTANCE.pathLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void pathExistsChecked(long start) {
+        if (start != 0) {
+            INSTANCE.pathExistsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    // Records the work of one search
+    public static void searched(int settledNodes, int relaxedEdges, int largestQueue) {
+        if (enabled) {
+            INSTANCE.searches.increment();
+            INSTANCE.settled.add(settledNodes);
+            INSTANCE.relaxed.add(relaxedEdges);
+            INSTANCE.queuePeak.accumulate(largestQueue);
+        }
+    }
+
+    public static void loaded(long nanos, long lines) {
+        if (enabled) {
+            INSTANCE.loads.incrementAndGet();
+            INSTANCE.lastLoadNanos = nanos;
+            INSTANCE.lastLoadLines = lines;
+        }
+    }
+
+    public static void saved(long start) {
+        if (start != 0) {
+            INSTANCE.saves.incrementAndGet();
+            INSTANCE.lastSaveNanos = System.nanoTime() - start;
+        }
+    }
+
+    // Reports the size of this graph from now on
+    public static void watch(Graph<?> graph) {
+        INSTANCE.graph = graph;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        GraphMetrics.enabled = enabled;
+    }
+
+    // Registers the metrics with the platform MBean server, once
+    public synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    // Prints the summary every 'periodSeconds' on a daemon thread, replacing any earlier
+    // schedule
+    public synchronized void startLogging(long periodSeconds, PrintStream out) {
+        if (periodSeconds < 1) {
+            throw new IllegalArgumentException("Period must be at least one second");
+        }
+        stopLogging();
+        if (logger == null) {
+            logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "GraphMetrics logger");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        logging = logger.scheduleAtFixedRate(() -> out.println("GraphMetrics " + getSummary()),
+                periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopLogging() {
+        if (logging != null) {
+            logging.cancel(false);
+            logging = null;
+        }
+    }
+
+    public LatencyHistogram getPathLatency() {
+        return pathLatency;
+    }
+
+    public LatencyHistogram getPathExistsLatency() {
+        return pathExistsLatency;
+    }
+
+    public long getPathQueries() {
+        return pathLatency.getCount();
+    }
+
+    public double getPathMeanMicros() {
+        return pathLatency.getMean() / 1e3;
+    }
+
+    public double getPathP50Micros() {
+        return pathLatency.getPercentile(0.5) / 1e3;
+    }
+
+    public double getPathP99Micros() {
+        return pathLatency.getPercentile(0.99) / 1e3;
+    }
+
+    public double getPathMaxMicros() {
+        return pathLatency.getMax() / 1e3;
+    }
+
+    public long getPathExistsQueries() {
+        return pathExistsLatency.getCount();
+    }
+
+    public double getPathExistsP99Micros() {
+        return pathExistsLatency.getPercentile(0.99) / 1e3;
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getNodesSettled() {
+        return settled.sum();
+    }
+
+    public long getEdgesRelaxed() {
+        return relaxed.sum();
+    }
+
+    public long getQueuePeak() {
+        return queuePeak.get();
+    }
+
+    public long getLoads() {
+        return loads.get();
+    }
+
+    public double getLastLoadMillis() {
+        return lastLoadNanos / 1e6;
+    }
+
+    public long getLastLoadLines() {
+        return lastLoadLines;
+    }
+
+    public long getSaves() {
+        return saves.get();
+    }
+
+    public double getLastSaveMillis() {
+        return lastSaveNanos / 1e6;
+    }
+
+    public int getNodeCount() {
+        Graph<?> watched = graph;
+        return watched == null ? 0 : watched.getNodes().size();
+    }
+
+    // Counts every connection once; this walks the whole graph
+    public int getConnectionCount() {
+        Graph<?> watched = graph;
+        return watched == null ? 0 : countConnections(watched);
+    }
+
+    private static <T> int countConnections(Graph<T> graph) {
+        int arcs = 0;
+        for (T node : graph.getNodes()) {
+            arcs += graph.getEdgesFrom(node).size();
+        }
+        return arcs / 2;
+    }
+
+    public String getSummary() {
+        return String.format("getPath [%s] pathExists [%s] searches=%d settled=%d relaxed=%d queuePeak=%d"
+                + " loads=%d lastLoad=%.1fms saves=%d lastSave=%.1fms nodes=%d",
+                pathLatency.summary(), pathExistsLatency.summary(), getSearches(), getNodesSettled(),
+                getEdgesRelaxed(), getQueuePeak(), getLoads(), getLastLoadMillis(), getSaves(),
+                getLastSaveMillis(), getNodeCount());
+    }
+
+    public void reset() {
+        pathLatency.reset();
+        pathExistsLatency.reset();
+        searches.reset();
+        settled.reset();
+        relaxed.reset();
+        queuePeak.reset();
+        loads.set(0);
+        lastLoadNanos = 0;
+        lastLoadLines = 0;
+        saves.set(0);
+        lastSaveNanos = 0;
+    }
+}
@@ -0,0 +1,48 @@
+// The JMX view of GraphMetrics, registered as Pathfinder:type=GraphMetrics. Durations are
+// in microseconds.
+public interface GraphMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getPathQueries();
+
+    double getPathMeanMicros();
+
+    double getPathP50Micros();
+
+    double getPathP99Micros();
+
+    double getPathMaxMicros();
+
+    long getPathExistsQueries();
+
+    double getPathExistsP99Micros();
+
+    long getSearches();
+
+    long getNodesSettled();
+
+    long getEdgesRelaxed();
+
+    long getQueuePeak();
+
+    long getLoads();
+
+    double getLastLoadMillis();
+
+    long getLastLoadLines();
+
+    long getSaves();
+
+    double getLastSaveMillis();
+
+    int getNodeCount();
+
+    int getConnectionCount();
+
+    String getSummary();
+
+    void reset();
+}
@@ -0,0 +1,224 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+
+// Reads the .graph text format into a Graph: line 1 is the background image, line 2 is
+// 'name;x;y' for every place separated by ';', and every further line is a connection
+// 'from;to;name;weight'. The file is streamed line by line, places are looked up by name
+// in a hash index, and fields are cut out by position instead of with String.split.
+// Places are added with one addAll, and connections with one connectAll per chunk of
+// CHUNK_LINES lines. Every connection appears twice in the file, once from each end; the
+// second copy is skipped. Reading stops with an InterruptedIOException if the thread is
+// interrupted.
+public class GraphReader<T> {
+
+    private final PlaceFactory<T> factory;
+
+    // Places in file order, and the position of each by name
+    private final ArrayList<T> places = new ArrayList<>();
+    private final HashMap<String, Integer> idsByName = new HashMap<>();
+
+    // Connections read but not yet added to the graph, and their ends as pairs of ids, so
+    // that the second copy of a connection in the same chunk is recognized
+    private final ArrayList<Connection<T>> chunk = new ArrayList<>();
+    private final HashSet<Long> chunkPairs = new HashSet<>();
+
+    private String imagePath;
+    private long lineCount;
+    private int placeCount;
+    private int connectionCount;
+    private long loadNanos;
+
+    // Told the number of lines read every CHUNK_LINES lines, or null
+    private LongConsumer progressListener;
+    private static final int CHUNK_LINES = 4096;
+
+    public GraphReader(PlaceFactory<T> factory) {
+        this.factory = factory;
+    }
+
+    public void setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // Reads a file written by GraphWriter, compressed or not
+    public void read(Path file, Graph<T> graph) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            InputStream stream = isGzip(in) ? new GZIPInputStream(in, 1 << 16) : in;
+            read(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8), 1 << 16), graph);
+        }
+    }
+
+    // Checks for the gzip magic number without consuming it
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == 0x1f && second == 0x8b;
+    }
+
+    // Adds the places and connections read to the graph. The reader is not closed.
+    public void read(Reader source, Graph<T> graph) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = source instanceof BufferedReader
+                ? (BufferedReader) source : new BufferedReader(source);
+        places.clear();
+        idsByName.clear();
+        chunk.clear();
+        chunkPairs.clear();
+        imagePath = null;
+        lineCount = 0;
+        placeCount = 0;
+        connectionCount = 0;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineCount++;
+            if (lineCount == 1) {
+                imagePath = line;
+            } else if (lineCount == 2) {
+                readPlaces(line, graph);
+            } else if (!line.isEmpty()) {
+                readConnection(line, graph);
+            }
+
+            if (lineCount % CHUNK_LINES == 0) {
+                addChunk(graph);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Reading was interrupted");
+                } else if (progressListener != null) {
+                    progressListener.accept(lineCount);
+                }
+            }
+        }
+        addChunk(graph);
+        loadNanos = System.nanoTime() - start;
+        GraphMetrics.loaded(loadNanos, lineCount);
+    }
+
+    // Parses 'name;x;y;name;x;y;...'
+    private void readPlaces(String line, Graph<T> graph) throws IOException {
+        ArrayList<T> read = new ArrayList<>();
+        int position = 0;
+        while (position < line.length()) {
+            int nameEnd = fieldEnd(line, position);
+            int xEnd = fieldEnd(line, nameEnd + 1);
+            int yEnd = line.indexOf(';', xEnd + 1);
+            if (yEnd < 0) {
+                yEnd = line.length();
+            }
+            String name = line.substring(position, nameEnd);
+            double x = parseDouble(line, nameEnd + 1, xEnd);
+            double y = parseDouble(line, xEnd + 1, yEnd);
+
+            if (idsByName.putIfAbsent(name, places.size()) == null) {
+                T place = factory.create(name, x, y);
+                places.add(place);
+                read.add(place);
+            }
+            position = yEnd + 1;
+        }
+        graph.addAll(read);
+        placeCount = read.size();
+    }
+
+    // Parses 'from;to;name;weight'
+    private void readConnection(String line, Graph<T> graph) throws IOException {
+        int fromEnd = fieldEnd(line, 0);
+        int toEnd = fieldEnd(line, fromEnd + 1);
+        int nameEnd = fieldEnd(line, toEnd + 1);
+        int from = id(line.substring(0, fromEnd));
+        int to = id(line.substring(fromEnd + 1, toEnd));
+        int weight = parseInt(line, nameEnd + 1, line.length());
+
+        long pair = from < to ? (long) from << 32 | to : (long) to << 32 | from;
+        if (graph.getEdgeBetween(places.get(from), places.get(to)) == null && chunkPairs.add(pair)) {
+            chunk.add(new Connection<>(places.get(from), places.get(to), line.substring(toEnd + 1, nameEnd), weight));
+            connectionCount++;
+        }
+    }
+
+    private void addChunk(Graph<T> graph) {
+        if (!chunk.isEmpty()) {
+            graph.connectAll(chunk);
+            chunk.clear();
+            chunkPairs.clear();
+        }
+    }
+
+    private int id(String name) throws IOException {
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            throw new IOException("Unknown place '" + name + "' on line " + lineCount);
+        }
+        return id;
+    }
+
+    private int fieldEnd(String line, int start) throws IOException {
+        int end = start < line.length() ? line.indexOf(';', start) : -1;
+        if (end < 0) {
+            throw new IOException("Missing field on line " + lineCount);
+        }
+        return end;
+    }
+
+    private int parseInt(String line, int start, int end) throws IOException {
+        try {
+            return Integer.parseInt(line, start, end, 10);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number on line " + lineCount, e);
+        }
+    }
+
+    private double parseDouble(String line, int start, int end) throws IOException {
+        try {
+            return Double.parseDouble(line.substring(start, end));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number on line " + lineCount, e);
+        }
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    // Returns the place with the given name from the last file read, or null
+    public T getPlace(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? null : places.get(id);
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public int getPlaceCount() {
+        return placeCount;
+    }
+
+    // Returns the number of connections added, each counted once
+    public int getConnectionCount() {
+        return connectionCount;
+    }
+
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public double getLinesPerSecond() {
+        return loadNanos == 0 ? 0 : lineCount / (loadNanos / 1e9);
+    }
+}
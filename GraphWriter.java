@@ -0,0 +1,144 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+// Writes a graph of places in the .graph text format read by GraphReader. Places and
+// connections are streamed to a buffered writer as they are visited, and every
+// connection is written once. Files are written to a temporary file next to the target
+// and then moved over it, so a failed or interrupted save never leaves a half-written map
+// behind.
+public class GraphWriter<T extends Place> {
+
+    private final String imagePath;
+
+    // Whether files are written gzip-compressed; GraphReader detects this on its own
+    private boolean compressed;
+
+    // Told the number of places whose connections are written, every PROGRESS_PLACES
+    // places, or null
+    private LongConsumer progressListener;
+    private static final int PROGRESS_PLACES = 1024;
+
+    public GraphWriter(String imagePath) {
+        this.imagePath = imagePath;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public void setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // Replaces the file with the graph, atomically where the file system supports it. The
+    // new file is on disk before it replaces the old one, and the rename is on disk before
+    // this returns, so a crash leaves either the old graph or the new one.
+    public void write(Graph<T> graph, Path file) throws IOException {
+        long start = GraphMetrics.start();
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                OutputStream stream = compressed ? new GZIPOutputStream(out, 1 << 16) : out;
+                Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+                write(graph, writer);
+                writer.flush();
+                if (compressed) {
+                    ((GZIPOutputStream) stream).finish();
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(directory);
+            GraphMetrics.saved(start);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Forces the entries of a directory to disk. Some platforms, Windows among them, cannot
+    // open a directory; their file systems commit the rename without it.
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    // Writes the graph to a writer, which is neither flushed nor closed
+    public void write(Graph<T> graph, Writer writer) throws IOException {
+        Set<T> places = graph.getNodes();
+        writer.write(imagePath);
+        writer.write('\n');
+
+        boolean first = true;
+        for (T place : places) {
+            if (!first) {
+                writer.write(';');
+            }
+            first = false;
+            writer.write(place.getName());
+            writer.write(';');
+            writer.write(Double.toString(place.getX()));
+            writer.write(';');
+            writer.write(Double.toString(place.getY()));
+        }
+        writer.write('\n');
+
+        // A connection is written from the first of its two places to be visited
+        Set<T> written = new HashSet<>(places.size() * 4 / 3 + 1);
+        for (T place : places) {
+            for (Edge<T> edge : graph.getEdgesFrom(place)) {
+                if (!written.contains(edge.getDestination())) {
+                    writer.write(place.getName());
+                    writer.write(';');
+                    writer.write(edge.getDestination().getName());
+                    writer.write(';');
+                    writer.write(edge.getName());
+                    writer.write(';');
+                    writer.write(Integer.toString(edge.getWeight()));
+                    writer.write('\n');
+                }
+            }
+            written.add(place);
+
+            if (written.size() % PROGRESS_PLACES == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Writing was interrupted");
+                } else if (progressListener != null) {
+                    progressListener.accept(written.size());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.stream.IntStream;
+
+// Answers shortest path queries on a .graph file without JavaFX. The map is loaded into
+// Locations, with the saved changes in its journal applied, and frozen into a CsrGraph,
+// or preprocessed into a Contraction Hierarchy with --ch, and the queries are answered
+// in parallel. Queries are lines 'from;to' with place names, read from a file or stdin;
+// every answer is written in input order as 'from;to;length;microseconds', with length
+// -1 if there is no path, or 'from;to;error;message'. A summary goes to stderr, followed
+// by the GraphMetrics summary with --metrics.
+// Usage: java HeadlessPathFinder [--ch] [--metrics] [--threads n] map.graph [queries | -]
+public class HeadlessPathFinder {
+
+    public static void main(String[] args) throws IOException {
+        boolean hierarchy = false;
+        boolean metrics = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--ch")) {
+                hierarchy = true;
+            } else if (args[i].equals("--metrics")) {
+                metrics = true;
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty() || files.size() > 2 || threads < 1) {
+            System.err.println("Usage: java HeadlessPathFinder [--ch] [--metrics] [--threads n] map.graph [queries | -]");
+            System.exit(2);
+        }
+
+        if (metrics) {
+            GraphMetrics.get().setEnabled(true);
+        }
+
+        long start = System.nanoTime();
+        ListGraph<Location> graph = new ListGraph<>();
+        GraphReader<Location> reader = new GraphReader<>(Location::new);
+        reader.read(Paths.get(files.get(0)), graph);
+        int replayed = GraphJournal.replaySaved(Paths.get(files.get(0)), graph, Location::new);
+        HashMap<String, Location> places = new HashMap<>();
+        for (Location place : graph.getNodes()) {
+            places.put(place.getName(), place);
+        }
+        System.err.printf("Loaded %d places and %d connections, and %d changes from the journal, in %.1f ms%n",
+                reader.getPlaceCount(), reader.getConnectionCount(), replayed, (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        BiFunction<Location, Location, List<Edge<Location>>> search;
+        if (hierarchy) {
+            // A query object keeps its workspace between queries, so every thread gets one
+            ContractionHierarchy<Location> contracted = new ContractionHierarchy<>(graph);
+            ThreadLocal<ContractionHierarchyQuery<Location>> queries =
+                    ThreadLocal.withInitial(() -> new ContractionHierarchyQuery<>(contracted));
+            search = (from, to) -> queries.get().findPath(from, to);
+        } else {
+            CsrGraph<Location> frozen = graph.freeze();
+            search = frozen::getPath;
+        }
+        System.err.printf("Prepared %s in %.1f ms%n", hierarchy ? "contraction hierarchy" : "frozen graph",
+                (System.nanoTime() - start) / 1e6);
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = files.size() < 2 || files.get(1).equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(files.get(1)), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        }
+
+        String[] answers = new String[lines.size()];
+        // Lines that fail keep -1 and are left out of the latency percentiles
+        long[] latencies = new long[lines.size()];
+        Arrays.fill(latencies, -1);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        start = System.nanoTime();
+        pool.submit(() -> IntStream.range(0, lines.size()).parallel()
+                .forEach(i -> answers[i] = answer(lines.get(i), places, search, latencies, i))).join();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        for (String answer : answers) {
+            out.write(answer);
+            out.write('\n');
+        }
+        out.flush();
+
+        long[] answered = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+        System.err.printf("%d queries on %d threads in %.1f ms: %.0f queries/s, %d failed,"
+                + " latency p50 %d us, p99 %d us%n",
+                lines.size(), threads, elapsed / 1e6, lines.size() / (elapsed / 1e9),
+                lines.size() - answered.length, percentile(answered, 0.5), percentile(answered, 0.99));
+        if (metrics) {
+            GraphMetrics.watch(graph);
+            System.err.println("GraphMetrics " + GraphMetrics.get().getSummary());
+        }
+    }
+
+    // Answers one query line, recording its latency if it could be answered
+    private static String answer(String line, HashMap<String, Location> places,
+            BiFunction<Location, Location, List<Edge<Location>>> search, long[] latencies, int index) {
+        long start = System.nanoTime();
+        int separator = line.indexOf(';');
+        if (separator < 0) {
+            return line + ";error;Expected 'from;to'";
+        }
+        String fromName = line.substring(0, separator);
+        String toName = line.substring(separator + 1);
+        Location from = places.get(fromName);
+        Location to = places.get(toName);
+        if (from == null || to == null) {
+            return line + ";error;Unknown place '" + (from == null ? fromName : toName) + "'";
+        }
+
+        List<Edge<Location>> path = search.apply(from, to);
+        int length = -1;
+        if (path != null) {
+            length = 0;
+            for (Edge<Location> edge : path) {
+                length += edge.getWeight();
+            }
+        }
+        long latency = System.nanoTime() - start;
+        latencies[index] = latency;
+        return line + ";" + length + ";" + latency / 1000;
+    }
+
+    private static long percentile(long[] sortedNanos, double fraction) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        return sortedNanos[Math.min(sortedNanos.length - 1, (int) (sortedNanos.length * fraction))] / 1000;
+    }
+}
@@ -0,0 +1,6 @@
+// Estimates the remaining cost from a node to the target of a search.
+// To find shortest paths the estimate must never exceed the real remaining cost.
+public interface Heuristic<T> {
+
+    int estimate(T node, T target);
+}
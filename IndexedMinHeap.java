@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// A binary min-heap of int ids ordered by int keys, with support for decrease-key.
+// Ids are expected to be small and dense (0, 1, 2, ...); the arrays grow as needed.
+public class IndexedMinHeap {
+
+    // heap[i] is the id stored at heap position i
+    private int[] heap;
+
+    // positions[id] is the heap position of id, or -1 if id is not in the heap
+    private int[] positions;
+
+    // keys[id] is the current key of id
+    private int[] keys;
+
+    private int size;
+
+    public IndexedMinHeap() {
+        this(16);
+    }
+
+    public IndexedMinHeap(int capacity) {
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return id < positions.length && positions[id] >= 0;
+    }
+
+    public int getKey(int id) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("Id not found in heap");
+        }
+        return keys[id];
+    }
+
+    // Returns the id with the smallest key without removing it
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Heap is empty");
+        }
+        return heap[0];
+    }
+
+    // Returns the smallest key in the heap
+    public int peekKey() {
+        return keys[peek()];
+    }
+
+    // Inserts an id that is not already in the heap
+    public void insert(int id, int key) {
+        if (contains(id)) {
+            throw new IllegalStateException("Id already in heap");
+        }
+        ensureCapacity(id + 1);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        keys[id] = key;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    // Lowers the key of an id that is already in the heap
+    public void decreaseKey(int id, int key) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("Id not found in heap");
+        } else if (key > keys[id]) {
+            throw new IllegalArgumentException("New key is larger than the current key");
+        }
+        keys[id] = key;
+        siftUp(positions[id]);
+    }
+
+    // Changes the key of an id that is already in the heap, in either direction
+    public void changeKey(int id, int key) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("Id not found in heap");
+        }
+        int oldKey = keys[id];
+        keys[id] = key;
+        if (key < oldKey) {
+            siftUp(positions[id]);
+        } else {
+            siftDown(positions[id]);
+        }
+    }
+
+    // Inserts the id, or lowers its key if it is already queued with a larger one
+    public void insertOrDecrease(int id, int key) {
+        if (contains(id)) {
+            if (key < keys[id]) {
+                decreaseKey(id, key);
+            }
+        } else {
+            insert(id, key);
+        }
+    }
+
+    // Removes and returns the id with the smallest key
+    public int poll() {
+        int min = peek();
+        size--;
+        positions[min] = -1;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int oldLength = positions.length;
+            int newLength = Math.max(capacity, oldLength * 2);
+            positions = Arrays.copyOf(positions, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+            Arrays.fill(positions, oldLength, newLength, -1);
+        }
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        int key = keys[id];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[position] = parentId;
+            positions[parentId] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) {
+                break;
+            }
+            heap[position] = childId;
+            positions[childId] = position;
+            position = child;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,320 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+// The k shortest loopless paths between two nodes of an undirected graph, found with Yen's
+// algorithm and handed out lazily, shortest first. Every path after the first deviates
+// from an earlier one at a spur node; the rest of it is found with an A* spur search that
+// avoids the nodes before the spur node and the connections earlier paths took from it.
+// A shortest path tree rooted at the destination gives the exact remaining distance from
+// every node in the full graph, which is a consistent A* heuristic for all spur searches,
+// and a lower bound that skips spur searches which cannot beat the paths already queued.
+// The graph must not change while the paths are being iterated.
+public class KShortestPaths<T> implements Iterator<List<Edge<T>>> {
+
+    private final Graph<T> graph;
+
+    // Shortest paths from the destination, so distanceAt(id) is the distance to it
+    private final ShortestPathTree<T> tree;
+
+    private final int source;
+    private final int target;
+    private final int k;
+
+    // Whether the spur searches of one path run in parallel
+    private boolean parallel;
+
+    // Paths handed out so far, as node ids and edges
+    private final List<int[]> foundNodes = new ArrayList<>();
+    private final List<List<Edge<T>>> foundEdges = new ArrayList<>();
+
+    // Paths found by spur searches but not handed out yet, cheapest first
+    private final TreeSet<Candidate> candidates = new TreeSet<>();
+    private final HashSet<List<Integer>> seen = new HashSet<>();
+    private int candidateCount;
+
+    // Set when the spur searches for the last path handed out have not been run yet
+    private boolean pending;
+
+    private final ThreadLocal<Workspace> workspaces;
+
+    private class Candidate implements Comparable<Candidate> {
+        final int cost;
+        final int order;
+        final int[] nodes;
+        final List<Edge<T>> edges;
+
+        Candidate(int cost, int[] nodes, List<Edge<T>> edges) {
+            this.cost = cost;
+            this.order = candidateCount++;
+            this.nodes = nodes;
+            this.edges = edges;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return cost != other.cost ? Integer.compare(cost, other.cost) : Integer.compare(order, other.order);
+        }
+    }
+
+    // The result of a spur search: the whole path, and the part it shares with the path
+    // it deviates from
+    private class Deviation {
+        final int[] nodes;
+        final int rootCost;
+        final List<Edge<T>> rootEdges;
+
+        Deviation(int[] nodes, int rootCost, List<Edge<T>> rootEdges) {
+            this.nodes = nodes;
+            this.rootCost = rootCost;
+            this.rootEdges = rootEdges;
+        }
+    }
+
+    // Arrays for one spur search at a time, reset through the list of touched ids
+    private class Workspace {
+        final int[] distances;
+        final int[] previous;
+        final boolean[] blocked;
+        final IndexedMinHeap queue;
+        int[] touched = new int[16];
+        int touchedCount;
+
+        Workspace(int n) {
+            distances = new int[n];
+            previous = new int[n];
+            blocked = new boolean[n];
+            queue = new IndexedMinHeap(n);
+            Arrays.fill(distances, Integer.MAX_VALUE);
+        }
+
+        void touch(int id) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = id;
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                distances[touched[i]] = Integer.MAX_VALUE;
+            }
+            touchedCount = 0;
+            queue.clear();
+        }
+    }
+
+    public KShortestPaths(Graph<T> graph, T from, T to, int k) {
+        this(new ShortestPathTree<>(graph, to), from, k);
+    }
+
+    // Uses an existing shortest path tree rooted at the destination
+    public KShortestPaths(ShortestPathTree<T> tree, T from, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.graph = tree.getGraph();
+        this.tree = tree;
+        this.source = tree.idOf(from);
+        this.target = tree.idOf(tree.getSource());
+        this.k = k;
+        int n = tree.getNodeCount();
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(n));
+
+        if (tree.distanceAt(source) != ShortestPathTree.UNREACHABLE) {
+            addCandidate(treePath(source), 0, Collections.emptyList());
+        }
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (foundNodes.size() >= k) {
+            return false;
+        }
+        if (pending) {
+            pending = false;
+            searchDeviations(foundNodes.size() - 1);
+        }
+        return !candidates.isEmpty();
+    }
+
+    @Override
+    public List<Edge<T>> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more paths");
+        }
+        Candidate best = candidates.pollFirst();
+        foundNodes.add(best.nodes);
+        foundEdges.add(best.edges);
+        pending = true;
+        return Collections.unmodifiableList(best.edges);
+    }
+
+    // Runs the spur searches for every node of a path handed out, except the destination
+    private void searchDeviations(int index) {
+        int[] nodes = foundNodes.get(index);
+        List<Edge<T>> edges = foundEdges.get(index);
+        int remaining = k - foundNodes.size();
+
+        // Spur searches that cannot beat the paths already queued are skipped
+        int bound = candidates.size() >= remaining ? candidates.last().cost : Integer.MAX_VALUE;
+
+        IntStream spurs = IntStream.range(0, nodes.length - 1);
+        if (parallel) {
+            spurs = spurs.parallel();
+        }
+        List<Deviation> deviations = Collections.synchronizedList(new ArrayList<>());
+        spurs.forEach(spur -> {
+            Deviation deviation = spurSearch(nodes, edges, spur, bound);
+            if (deviation != null) {
+                deviations.add(deviation);
+            }
+        });
+
+        for (Deviation deviation : deviations) {
+            addCandidate(deviation.nodes, deviation.rootCost, deviation.rootEdges);
+        }
+        while (candidates.size() > remaining) {
+            candidates.pollLast();
+        }
+    }
+
+    // Finds the shortest path that follows 'nodes' up to the spur node and then leaves it
+    // by a connection no earlier path with the same root took, or returns null
+    private Deviation spurSearch(int[] nodes, List<Edge<T>> edges, int spur, int bound) {
+        int rootCost = 0;
+        for (int i = 0; i < spur; i++) {
+            rootCost += edges.get(i).getWeight();
+        }
+        int spurNode = nodes[spur];
+        int estimate = tree.distanceAt(spurNode);
+        if (estimate == ShortestPathTree.UNREACHABLE || (long) rootCost + estimate >= bound) {
+            return null;
+        }
+
+        // Connections out of the spur node taken by earlier paths with the same root
+        HashSet<Integer> blockedNext = new HashSet<>();
+        for (int[] found : foundNodes) {
+            if (found.length > spur + 1 && Arrays.equals(found, 0, spur + 1, nodes, 0, spur + 1)) {
+                blockedNext.add(found[spur + 1]);
+            }
+        }
+
+        Workspace workspace = workspaces.get();
+        for (int i = 0; i < spur; i++) {
+            workspace.blocked[nodes[i]] = true;
+        }
+        try {
+            int[] spurPath = aStar(workspace, spurNode, blockedNext, bound - rootCost);
+            if (spurPath == null) {
+                return null;
+            }
+            int[] path = new int[spur + spurPath.length];
+            System.arraycopy(nodes, 0, path, 0, spur);
+            System.arraycopy(spurPath, 0, path, spur, spurPath.length);
+            return new Deviation(path, rootCost, edges.subList(0, spur));
+        } finally {
+            for (int i = 0; i < spur; i++) {
+                workspace.blocked[nodes[i]] = false;
+            }
+            workspace.reset();
+        }
+    }
+
+    // A* from 'start' to the destination guided by the tree distances, skipping blocked
+    // nodes and the blocked first steps. Gives up at 'limit'. Returns the node ids of the
+    // path, or null.
+    private int[] aStar(Workspace workspace, int start, HashSet<Integer> blockedNext, long limit) {
+        int[] distances = workspace.distances;
+        int[] previous = workspace.previous;
+        IndexedMinHeap queue = workspace.queue;
+        distances[start] = 0;
+        previous[start] = -1;
+        workspace.touch(start);
+        queue.insert(start, tree.distanceAt(start));
+
+        while (!queue.isEmpty() && queue.peekKey() < limit) {
+            int current = queue.poll();
+            if (current == target) {
+                int length = 1;
+                for (int node = current; previous[node] >= 0; node = previous[node]) {
+                    length++;
+                }
+                int[] path = new int[length];
+                for (int node = current, i = length - 1; node >= 0; node = previous[node], i--) {
+                    path[i] = node;
+                }
+                return path;
+            }
+
+            int distance = distances[current];
+            for (Edge<T> edge : graph.getEdgesFrom(tree.nodeAt(current))) {
+                int next = tree.idOf(edge.getDestination());
+                int estimate = tree.distanceAt(next);
+                if (workspace.blocked[next] || estimate == ShortestPathTree.UNREACHABLE
+                        || (current == start && blockedNext.contains(next))) {
+                    continue;
+                }
+                int nextDistance = distance + edge.getWeight();
+                if (nextDistance < distances[next]) {
+                    if (distances[next] == Integer.MAX_VALUE) {
+                        workspace.touch(next);
+                    }
+                    distances[next] = nextDistance;
+                    previous[next] = current;
+                    queue.insertOrDecrease(next, nextDistance + estimate);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Returns the node ids along the tree from a node to the destination
+    private int[] treePath(int from) {
+        int length = 1;
+        for (int node = tree.previousAt(from); node >= 0; node = tree.previousAt(node)) {
+            length++;
+        }
+        int[] path = new int[length];
+        path[0] = from;
+        for (int node = tree.previousAt(from), i = 1; node >= 0; node = tree.previousAt(node), i++) {
+            path[i] = node;
+        }
+        return path;
+    }
+
+    // Queues a path unless it was seen before; 'rootEdges' are the edges it shares with
+    // the path it deviates from, the rest are looked up in the graph
+    private void addCandidate(int[] nodes, int rootCost, List<Edge<T>> rootEdges) {
+        List<Integer> key = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            key.add(node);
+        }
+        if (!seen.add(key)) {
+            return;
+        }
+
+        List<Edge<T>> edges = new ArrayList<>(rootEdges);
+        int cost = rootCost;
+        for (int i = rootEdges.size(); i < nodes.length - 1; i++) {
+            Edge<T> edge = graph.getEdgeBetween(tree.nodeAt(nodes[i]), tree.nodeAt(nodes[i + 1]));
+            edges.add(edge);
+            cost += edge.getWeight();
+        }
+        candidates.add(new Candidate(cost, nodes, edges));
+    }
+}
@@ -1,74 +1,268 @@
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
 
-// A graph implementation using an adjacency list with HashMap and HashSet
+// A graph implementation using an adjacency list of HashMaps
 public class ListGraph<T> implements Graph<T> {
 
-    // Stores each node and its set of connected edges
-    private HashMap<T, HashSet<Edge<T>>> nodes = new HashMap<>();
+    // Stores each node and its connections, keyed by the node at the other end. Both ends
+    // share the same connection record.
+    private HashMap<T, HashMap<T, UndirectedEdge<T>>> nodes = new HashMap<>();
+
+    // The algorithm used by getPath
+    private SearchStrategy searchStrategy = SearchStrategy.DIJKSTRA;
+
+    // Makes the heuristic for A_STAR, and the one made for the graph as it is now
+    private Function<Graph<T>, ? extends Heuristic<T>> heuristicFactory;
+    private Heuristic<T> heuristic;
+
+    // Contraction Hierarchy used by getPath, built lazily and dropped when the graph changes
+    private ContractionHierarchyQuery<T> hierarchyQuery;
+
+    // Answers pathExists without searching the graph
+    private final ConnectivityIndex<T> connectivity = new ConnectivityIndex<>(this);
+
+    // Counts the changes made to the graph
+    private long version;
+
+    private final List<GraphListener<T>> listeners = new ArrayList<>();
+
+    // Optional cache of getPath results, registered as a listener
+    private PathCache<T> pathCache;
+
+    // The last shortest path tree handed out, kept until nodes or connections change
+    private ShortestPathTree<T> shortestPathTree;
 
     public void add(T node1) {
-        nodes.putIfAbsent(node1, new HashSet<>());
+        if (nodes.putIfAbsent(node1, new HashMap<>()) == null) {
+            connectivity.nodeAdded(node1);
+            graphChanged();
+            for (GraphListener<T> listener : listeners) {
+                listener.nodeAdded(node1);
+            }
+        }
     }
 
     // Removes a node and all edges connected to it
     public void remove(T node) {
-        if (!nodes.containsKey(node)) {
+        HashMap<T, UndirectedEdge<T>> edges = nodes.remove(node);
+        if (edges == null) {
             throw new NoSuchElementException("Node not found in graph");
         }
 
         // Remove references to this node from connected nodes
-        for (Edge<T> edge : nodes.get(node)) {
-            T nodeConnected = edge.getDestination();
-            nodes.get(nodeConnected).removeIf(e -> e.getDestination().equals(node));
+        for (T nodeConnected : edges.keySet()) {
+            nodes.get(nodeConnected).remove(node);
         }
 
-        nodes.remove(node);
+        connectivity.invalidate();
+        graphChanged();
+        for (GraphListener<T> listener : listeners) {
+            listener.nodeRemoved(node);
+        }
     }
 
     // Connects two nodes with an edge (both directions since this is an undirected graph)
     public void connect(T node1, T node2, String name, int weight) {
-        if (!nodes.containsKey(node1) || !nodes.containsKey(node2)) {
+        HashMap<T, UndirectedEdge<T>> edges1 = nodes.get(node1);
+        HashMap<T, UndirectedEdge<T>> edges2 = nodes.get(node2);
+        if (edges1 == null || edges2 == null) {
             throw new NoSuchElementException("One or both of the nodes not found in graph");
         } else if (weight < 0) {
             throw new IllegalArgumentException("Weight cannot be negative");
-        } else if (getEdgeBetween(node1, node2) != null) {
+        } else if (edges1.containsKey(node2)) {
             throw new IllegalStateException("Edge already exists between nodes");
         }
 
-        nodes.get(node1).add(new Edge<>(node2, weight, name));
-        nodes.get(node2).add(new Edge<>(node1, weight, name));
+        UndirectedEdge<T> connection = new UndirectedEdge<>(node1, node2, name, weight);
+        edges1.put(node2, connection);
+        edges2.put(node1, connection);
+        connectivity.connectionAdded(node1, node2);
+        graphChanged();
+        for (GraphListener<T> listener : listeners) {
+            listener.connected(node1, node2, name, weight);
+        }
     }
 
     // Disconnects two nodes (removes the edge between them)
     public void disconnect(T node1, T node2) {
-        if (!nodes.containsKey(node1) || !nodes.containsKey(node2)) {
+        HashMap<T, UndirectedEdge<T>> edges1 = nodes.get(node1);
+        HashMap<T, UndirectedEdge<T>> edges2 = nodes.get(node2);
+        if (edges1 == null || edges2 == null) {
             throw new NoSuchElementException("One or both of the nodes not found in graph");
         }
 
-        if (getEdgeBetween(node1, node2) == null) {
+        if (edges1.remove(node2) == null) {
             throw new IllegalStateException("No edge found between the two nodes");
         }
-
-        nodes.get(node1).remove(getEdgeBetween(node1, node2));
-        nodes.get(node2).remove(getEdgeBetween(node2, node1));
+        edges2.remove(node1);
+        connectivity.invalidate();
+        graphChanged();
+        for (GraphListener<T> listener : listeners) {
+            listener.disconnected(node1, node2);
+        }
     }
 
     // Sets a new weight for the edge between two nodes
     public void setConnectionWeight(T node1, T node2, int newWeight) {
-        if (!nodes.containsKey(node1) || !nodes.containsKey(node2)) {
+        HashMap<T, UndirectedEdge<T>> edges1 = nodes.get(node1);
+        HashMap<T, UndirectedEdge<T>> edges2 = nodes.get(node2);
+        if (edges1 == null || edges2 == null) {
             throw new NoSuchElementException("One or both of the nodes not found in graph");
         } else if (newWeight < 0) {
             throw new IllegalArgumentException("Weight cannot be negative");
         }
 
-        Edge<T> edge = getEdgeBetween(node1, node2);
-        Edge<T> edge2 = getEdgeBetween(node2, node1);
-
-        if (edge == null || edge2 == null) {
+        UndirectedEdge<T> connection = edges1.get(node2);
+        if (connection == null) {
             throw new NoSuchElementException("No edge found between the two nodes");
-        } else {
-            edge.setWeight(newWeight);
-            edge2.setWeight(newWeight);
+        }
+
+        // Both directions share the record, so this is the only write
+        int oldWeight = connection.getWeight();
+        connection.setWeight(newWeight);
+
+        // The shortest path tree survives a weight change; it is repaired instead
+        ShortestPathTree<T> tree = shortestPathTree;
+        graphChanged();
+        if (tree != null) {
+            shortestPathTree = repaired(tree, node1, node2, oldWeight, newWeight);
+        }
+        for (GraphListener<T> listener : listeners) {
+            listener.weightChanged(node1, node2, oldWeight, newWeight);
+        }
+    }
+
+    // Adds every new node with the node map grown at most once, as one change to the graph
+    @Override
+    public void addAll(Collection<? extends T> newNodes) {
+        if (newNodes.size() > nodes.size()) {
+            HashMap<T, HashMap<T, UndirectedEdge<T>>> grown =
+                    new HashMap<>((int) ((nodes.size() + newNodes.size()) / 0.75f) + 1);
+            grown.putAll(nodes);
+            nodes = grown;
+        }
+
+        ArrayList<T> added = new ArrayList<>(newNodes.size());
+        for (T node : newNodes) {
+            if (nodes.putIfAbsent(node, new HashMap<>()) == null) {
+                connectivity.nodeAdded(node);
+                added.add(node);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        graphChanged();
+        for (GraphListener<T> listener : listeners) {
+            for (T node : added) {
+                listener.nodeAdded(node);
+            }
+        }
+    }
+
+    // Makes every connection in the batch, or none of them: the whole batch is checked
+    // before the graph is touched, and connections repeated within the batch are undone.
+    // The graph counts it as one change; listeners still hear about every connection.
+    @Override
+    public void connectAll(Collection<? extends Connection<T>> connections) {
+        for (Connection<T> connection : connections) {
+            HashMap<T, UndirectedEdge<T>> edges1 = nodes.get(connection.getNode1());
+            if (edges1 == null || !nodes.containsKey(connection.getNode2())) {
+                throw new NoSuchElementException("One or both of the nodes not found in graph: " + connection);
+            } else if (connection.getWeight() < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + connection);
+            } else if (edges1.containsKey(connection.getNode2())) {
+                throw new IllegalStateException("Edge already exists between nodes: " + connection);
+            }
+        }
+
+        ArrayList<UndirectedEdge<T>> added = new ArrayList<>(connections.size());
+        for (Connection<T> connection : connections) {
+            T node1 = connection.getNode1();
+            T node2 = connection.getNode2();
+            UndirectedEdge<T> record = new UndirectedEdge<>(node1, node2, connection.getName(), connection.getWeight());
+            if (nodes.get(node1).putIfAbsent(node2, record) != null) {
+                for (UndirectedEdge<T> undo : added) {
+                    nodes.get(undo.node1).remove(undo.getDestination());
+                    nodes.get(undo.getDestination()).remove(undo.node1);
+                }
+                throw new IllegalStateException("Connection appears twice in the batch: " + connection);
+            }
+            nodes.get(node2).put(node1, record);
+            added.add(record);
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        for (UndirectedEdge<T> record : added) {
+            connectivity.connectionAdded(record.node1, record.getDestination());
+        }
+        graphChanged();
+        for (GraphListener<T> listener : listeners) {
+            for (UndirectedEdge<T> record : added) {
+                listener.connected(record.node1, record.getDestination(), record.getName(), record.getWeight());
+            }
+        }
+    }
+
+    // Applies every update in the batch in order, or none of them if any is invalid. Each
+    // is a single write to the shared connection record; the graph counts the batch as
+    // one change, and the shortest path tree is repaired update by update.
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setConnectionWeights(Collection<? extends WeightUpdate<T>> updates) {
+        UndirectedEdge<T>[] records = (UndirectedEdge<T>[]) new UndirectedEdge[updates.size()];
+        int i = 0;
+        for (WeightUpdate<T> update : updates) {
+            HashMap<T, UndirectedEdge<T>> edges1 = nodes.get(update.getNode1());
+            if (edges1 == null || !nodes.containsKey(update.getNode2())) {
+                throw new NoSuchElementException("One or both of the nodes not found in graph: " + update);
+            } else if (update.getWeight() < 0) {
+                throw new IllegalArgumentException("Weight cannot be negative: " + update);
+            }
+            records[i] = edges1.get(update.getNode2());
+            if (records[i] == null) {
+                throw new NoSuchElementException("No edge found between the two nodes: " + update);
+            }
+            i++;
+        }
+        if (records.length == 0) {
+            return;
+        }
+
+        int[] oldWeights = new int[records.length];
+        ShortestPathTree<T> tree = shortestPathTree;
+        graphChanged();
+        i = 0;
+        for (WeightUpdate<T> update : updates) {
+            oldWeights[i] = records[i].getWeight();
+            records[i].setWeight(update.getWeight());
+            if (tree != null) {
+                tree = repaired(tree, update.getNode1(), update.getNode2(), oldWeights[i], update.getWeight());
+            }
+            i++;
+        }
+        shortestPathTree = tree;
+        for (GraphListener<T> listener : listeners) {
+            i = 0;
+            for (WeightUpdate<T> update : updates) {
+                listener.weightChanged(update.getNode1(), update.getNode2(), oldWeights[i], update.getWeight());
+                i++;
+            }
+        }
+    }
+
+    // Repairs the tree after a weight change. An interrupted repair leaves the tree half
+    // updated, so it is dropped and built again when next asked for; the weight change itself
+    // is done and still reaches the listeners. The thread stays interrupted.
+    private ShortestPathTree<T> repaired(ShortestPathTree<T> tree, T node1, T node2, int oldWeight, int newWeight) {
+        try {
+            tree.updateWeight(node1, node2, oldWeight, newWeight);
+            return tree;
+        } catch (CancellationException e) {
+            return null;
         }
     }
 
@@ -76,103 +270,171 @@ public class ListGraph<T> implements Graph<T> {
         return new HashSet<>(nodes.keySet());
     }
 
-    // Returns all edges from a given node
+    // Returns a read-only view of all edges from a given node
     public Collection<Edge<T>> getEdgesFrom(T node) {
-        if (!nodes.containsKey(node)) {
+        HashMap<T, UndirectedEdge<T>> edges = nodes.get(node);
+        if (edges == null) {
             throw new NoSuchElementException("Node not found in graph");
         }
-        return Collections.unmodifiableCollection(nodes.get(node));
+        return UndirectedEdge.edgesFrom(node, edges.values());
     }
 
+    // Looks up the edge between two nodes by its destination, or returns null
     public Edge<T> getEdgeBetween(T node1, T node2) {
-        if (!nodes.containsKey(node1) || !nodes.containsKey(node2)) {
+        HashMap<T, UndirectedEdge<T>> edges = nodes.get(node1);
+        if (edges == null || !nodes.containsKey(node2)) {
             throw new NoSuchElementException("One or both of the nodes not found in graph");
         }
-        for (Edge<T> edge : nodes.get(node1)) {
-            if (edge.getDestination().equals(node2)) {
-                return edge;
-            }
+        UndirectedEdge<T> connection = edges.get(node2);
+        return connection == null ? null : connection.from(node1);
+    }
+
+    // Returns the number of changes made to the graph so far
+    public long getVersion() {
+        return version;
+    }
+
+    public void addGraphListener(GraphListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeGraphListener(GraphListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    // Starts caching up to 'capacity' getPath results and returns the cache
+    public PathCache<T> enablePathCache(int capacity) {
+        disablePathCache();
+        pathCache = new PathCache<>(capacity);
+        addGraphListener(pathCache);
+        return pathCache;
+    }
+
+    public void disablePathCache() {
+        if (pathCache != null) {
+            removeGraphListener(pathCache);
+            pathCache = null;
         }
-        return null;
+    }
+
+    // Returns a read-only compressed sparse row snapshot of the graph for fast queries.
+    // Later changes to this graph are not reflected in the snapshot.
+    public CsrGraph<T> freeze() {
+        return new CsrGraph<>(this);
     }
 
     // Returns a string showing each node and its edges
     public String toString() {
         StringBuilder sb = new StringBuilder();
         for (T city : nodes.keySet()) {
-            sb.append(city).append(":").append(nodes.get(city)).append("\n");
+            sb.append(city).append(":").append(getEdgesFrom(city)).append("\n");
         }
         return sb.toString();
     }
 
+    // Checks if a path exists by comparing the connected components of the two nodes
     public boolean pathExists(T from, T to) {
-        if (!nodes.containsKey(from) || !nodes.containsKey(to)) {
-            return false;
-        }
-        Set<T> visited = new HashSet<>();
-        dfs(from, to, visited);
-        return visited.contains(to);
+        long start = GraphMetrics.start();
+        boolean exists = nodes.containsKey(from) && nodes.containsKey(to) && connectivity.isConnected(from, to);
+        GraphMetrics.pathExistsChecked(start);
+        return exists;
     }
 
-    // Returns the shortest path from 'from' to 'to' using BFS with weights
-    public List<Edge<T>> getPath(T from, T to) {
-        Map<T, T> connections = new HashMap<>();
-        Map<T, Integer> weights = new HashMap<>();
-        LinkedList<T> queue = new LinkedList<>();
-
-        connections.put(from, null);
-        weights.put(from, 0);
-        queue.add(from);
-
-        while (!queue.isEmpty()) {
-            T t = queue.pollFirst();
-            for (Edge<T> edge : nodes.get(t)) {
-                T destination = edge.getDestination();
-                int weightToDestination = weights.get(t) + edge.getWeight();
-                if (!weights.containsKey(destination) || weightToDestination < weights.get(destination)) {
-                    connections.put(destination, t);
-                    weights.put(destination, weightToDestination);
-                    queue.add(destination);
-                }
-            }
-        }
+    public SearchStrategy getSearchStrategy() {
+        return searchStrategy;
+    }
 
-        // No path found
-        if (!connections.containsKey(to)) {
-            return null;
+    // Selects the algorithm used by getPath
+    public void setSearchStrategy(SearchStrategy searchStrategy) {
+        if (searchStrategy == null) {
+            throw new IllegalArgumentException("Search strategy cannot be null");
         }
+        this.searchStrategy = searchStrategy;
+    }
 
-        // Build and return the path
-        return gatherPath(from, to, connections);
+    // Sets how the A_STAR heuristic is made from the graph. It is made again after the graph
+    // changes, so a heuristic that depends on the weights stays admissible.
+    public void setHeuristicFactory(Function<Graph<T>, ? extends Heuristic<T>> heuristicFactory) {
+        this.heuristicFactory = heuristicFactory;
+        heuristic = null;
     }
 
-    // Builds the path by walking backward through the connections map
-    private List<Edge<T>> gatherPath(T from, T to, Map<T, T> connections) {
-        LinkedList<Edge<T>> path = new LinkedList<>();
-        T current = to;
+    // Returns the shortest path from 'from' to 'to' using the selected search strategy,
+    // or null if no path exists
+    public List<Edge<T>> getPath(T from, T to) {
+        long start = GraphMetrics.start();
+        List<Edge<T>> path = findCachedPath(from, to);
+        GraphMetrics.pathFound(start);
+        return path;
+    }
+
+    private List<Edge<T>> findCachedPath(T from, T to) {
+        if (!nodes.containsKey(from) || !nodes.containsKey(to)) {
+            throw new NoSuchElementException("One or both of the nodes not found in graph");
+        } else if (!connectivity.isConnected(from, to)) {
+            // No path, so there is no need to search the whole component of 'from'
+            return null;
+        } else if (pathCache == null) {
+            return findPath(from, to);
+        }
 
-        while (!current.equals(from)) {
-            T next = connections.get(current);
-            Edge<T> edge = getEdgeBetween(next, current);
-            path.addFirst(edge);
-            current = next;
+        List<Edge<T>> path = pathCache.get(from, to);
+        if (path == null) {
+            path = findPath(from, to);
+            pathCache.put(from, to, path);
         }
         return path;
     }
 
-    // Depth-first search to find if a path exists
-    private boolean dfs(T current, T searchedFor, Set<T> visited) {
-        visited.add(current);
-        if (current.equals(searchedFor)) {
-            return true;
+    // Returns the shortest paths from one node to every other node. The tree is reused for
+    // the same source until nodes or connections change, and repaired on weight changes.
+    @Override
+    public ShortestPathTree<T> shortestPathTree(T from) {
+        if (shortestPathTree == null || !shortestPathTree.getSource().equals(from)) {
+            shortestPathTree = new ShortestPathTree<>(this, from);
         }
-        for (Edge<T> edge : nodes.get(current)) {
-            if (!visited.contains(edge.getDestination())) {
-                if (dfs(edge.getDestination(), searchedFor, visited)) {
-                    return true;
+        return shortestPathTree;
+    }
+
+    // Whether the tree of 'from' is kept, so shortestPathTree(from) answers without searching
+    public boolean hasShortestPathTree(T from) {
+        return shortestPathTree != null && shortestPathTree.getSource().equals(from);
+    }
+
+    // Returns up to k shortest loopless paths. Builds its own tree of 'to', so the tree kept
+    // for shortestPathTree is not replaced.
+    @Override
+    public Iterator<List<Edge<T>>> getPaths(T from, T to, int k) {
+        return new KShortestPaths<>(new ShortestPathTree<>(this, to), from, k);
+    }
+
+    // Runs the selected search strategy
+    private List<Edge<T>> findPath(T from, T to) {
+        switch (searchStrategy) {
+            case BIDIRECTIONAL:
+                return new BidirectionalSearch<>(this).findPath(from, to);
+            case CONTRACTION_HIERARCHIES:
+                if (hierarchyQuery == null) {
+                    hierarchyQuery = new ContractionHierarchyQuery<>(new ContractionHierarchy<>(this));
                 }
-            }
+                return hierarchyQuery.findPath(from, to);
+            case A_STAR:
+                if (heuristic == null && heuristicFactory != null) {
+                    heuristic = heuristicFactory.apply(this);
+                }
+                return heuristic == null
+                        ? new DijkstraSearch<>(this).findPath(from, to)
+                        : new DijkstraSearch<>(this, heuristic).findPath(from, to);
+            default:
+                return new DijkstraSearch<>(this).findPath(from, to);
         }
-        return false;
+    }
+
+    // Drops everything derived from the current shape or weights of the graph
+    private void graphChanged() {
+        version++;
+        hierarchyQuery = null;
+        heuristic = null;
+        shortestPathTree = null;
     }
 }
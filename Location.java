@@ -0,0 +1,30 @@
+// A place that is not drawn on screen, for tools that work with maps without JavaFX
+public class Location implements Place {
+
+    private final String name;
+    private final double x;
+    private final double y;
+
+    public Location(String name, double x, double y) {
+        this.name = name;
+        this.x = x;
+        this.y = y;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// A read-only graph over a memory-mapped file in the binary format of BinaryGraphFormat.
+// Opening only maps the file and checks the header; queries read the CSR arrays straight
+// from the mapped buffers. Nodes are the ids 0 .. n - 1; names and positions are looked
+// up through the id.
+public class MappedGraph implements Graph<Integer> {
+
+    private final int nodeCount;
+    private final int arcCount;
+    private final int imageString;
+
+    private final DoubleBuffer coordinates;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer arcNames;
+    private final IntBuffer nodeNames;
+    private final IntBuffer nameOrder;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringBytes;
+
+    private MappedGraph(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < 4 * BinaryGraphFormat.HEADER_INTS || buffer.getInt(0) != BinaryGraphFormat.MAGIC) {
+            throw new IOException("Not a binary graph file");
+        } else if (buffer.getInt(4) != BinaryGraphFormat.VERSION) {
+            throw new IOException("Unsupported binary graph version " + buffer.getInt(4));
+        }
+        nodeCount = buffer.getInt(8);
+        arcCount = buffer.getInt(12);
+        int stringCount = buffer.getInt(16);
+        int stringByteCount = buffer.getInt(20);
+        imageString = buffer.getInt(24);
+
+        long expected = 4L * BinaryGraphFormat.HEADER_INTS + 16L * nodeCount + 4L * (nodeCount + 1)
+                + 12L * arcCount + 8L * nodeCount + 4L * (stringCount + 1) + stringByteCount;
+        if (nodeCount < 0 || arcCount < 0 || stringCount < 0 || expected != buffer.capacity()) {
+            throw new IOException("Binary graph file is truncated or corrupt");
+        }
+
+        int position = 4 * BinaryGraphFormat.HEADER_INTS;
+        coordinates = slice(buffer, position, 16 * nodeCount).asDoubleBuffer();
+        position += 16 * nodeCount;
+        offsets = slice(buffer, position, 4 * (nodeCount + 1)).asIntBuffer();
+        position += 4 * (nodeCount + 1);
+        targets = slice(buffer, position, 4 * arcCount).asIntBuffer();
+        position += 4 * arcCount;
+        weights = slice(buffer, position, 4 * arcCount).asIntBuffer();
+        position += 4 * arcCount;
+        arcNames = slice(buffer, position, 4 * arcCount).asIntBuffer();
+        position += 4 * arcCount;
+        nodeNames = slice(buffer, position, 4 * nodeCount).asIntBuffer();
+        position += 4 * nodeCount;
+        nameOrder = slice(buffer, position, 4 * nodeCount).asIntBuffer();
+        position += 4 * nodeCount;
+        stringOffsets = slice(buffer, position, 4 * (stringCount + 1)).asIntBuffer();
+        position += 4 * (stringCount + 1);
+        stringBytes = slice(buffer, position, stringByteCount);
+    }
+
+    // Maps a binary graph file. The mapping stays valid after the file is closed.
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary graph file is too large to map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedGraph(buffer);
+        }
+    }
+
+    public void add(Integer node) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    public void remove(Integer node) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    public void connect(Integer node1, Integer node2, String name, int weight) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    public void disconnect(Integer node1, Integer node2) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    public void setConnectionWeight(Integer node1, Integer node2, int weight) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getArcCount() {
+        return arcCount;
+    }
+
+    public String getImagePath() {
+        return string(imageString);
+    }
+
+    public String getName(int node) {
+        return string(nodeNames.get(check(node)));
+    }
+
+    public double getX(int node) {
+        return coordinates.get(2 * check(node));
+    }
+
+    public double getY(int node) {
+        return coordinates.get(2 * check(node) + 1);
+    }
+
+    // Returns the id of a node with the given name, or -1, by binary search over the
+    // name order stored in the file
+    public int findNode(String name) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int node = nameOrder.get(middle);
+            int comparison = string(nodeNames.get(node)).compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    public Set<Integer> getNodes() {
+        Set<Integer> nodes = new HashSet<>(nodeCount * 4 / 3 + 1);
+        for (int i = 0; i < nodeCount; i++) {
+            nodes.add(i);
+        }
+        return nodes;
+    }
+
+    public Collection<Edge<Integer>> getEdgesFrom(Integer node) {
+        int id = check(node);
+        int end = offsets.get(id + 1);
+        ArrayList<Edge<Integer>> edges = new ArrayList<>(end - offsets.get(id));
+        for (int i = offsets.get(id); i < end; i++) {
+            edges.add(edgeAt(i));
+        }
+        return Collections.unmodifiableList(edges);
+    }
+
+    public Edge<Integer> getEdgeBetween(Integer node1, Integer node2) {
+        int id1 = check(node1);
+        int id2 = check(node2);
+        int end = offsets.get(id1 + 1);
+        for (int i = offsets.get(id1); i < end; i++) {
+            if (targets.get(i) == id2) {
+                return edgeAt(i);
+            }
+        }
+        return null;
+    }
+
+    // Breadth-first search over the mapped arrays
+    public boolean pathExists(Integer from, Integer to) {
+        if (from == null || to == null || from < 0 || from >= nodeCount || to < 0 || to >= nodeCount) {
+            return false;
+        }
+        boolean[] visited = new boolean[nodeCount];
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        visited[from] = true;
+        queue[tail++] = from;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == to) {
+                return true;
+            }
+            int end = offsets.get(current + 1);
+            for (int i = offsets.get(current); i < end; i++) {
+                int next = targets.get(i);
+                if (!visited[next]) {
+                    visited[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Returns the shortest path using Dijkstra's algorithm over the mapped arrays, or null
+    // if no path exists
+    public List<Edge<Integer>> getPath(Integer from, Integer to) {
+        int source = check(from);
+        int target = check(to);
+
+        int[] distances = new int[nodeCount];
+        int[] previousArcs = new int[nodeCount];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        distances[source] = 0;
+        previousArcs[source] = -1;
+        queue.insert(source, 0);
+
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            if (current == target) {
+                ArrayList<Edge<Integer>> path = new ArrayList<>();
+                for (int node = target; node != source; node = sourceOf(previousArcs[node])) {
+                    path.add(edgeAt(previousArcs[node]));
+                }
+                Collections.reverse(path);
+                return path;
+            }
+
+            int distance = distances[current];
+            int end = offsets.get(current + 1);
+            for (int i = offsets.get(current); i < end; i++) {
+                int next = targets.get(i);
+                int nextDistance = distance + weights.get(i);
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    previousArcs[next] = i;
+                    queue.insertOrDecrease(next, nextDistance);
+                }
+            }
+        }
+
+        // No path found
+        return null;
+    }
+
+    // Copies the whole graph into a ListGraph of Locations, for example to edit it
+    public ListGraph<Location> toListGraph() {
+        ListGraph<Location> graph = new ListGraph<>();
+        Location[] locations = new Location[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            locations[i] = new Location(getName(i), getX(i), getY(i));
+            graph.add(locations[i]);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            int end = offsets.get(i + 1);
+            for (int arc = offsets.get(i); arc < end; arc++) {
+                int target = targets.get(arc);
+                if (i < target || (i == target && graph.getEdgeBetween(locations[i], locations[i]) == null)) {
+                    graph.connect(locations[i], locations[target], string(arcNames.get(arc)), weights.get(arc));
+                }
+            }
+        }
+        return graph;
+    }
+
+    private int check(Integer node) {
+        if (node == null || node < 0 || node >= nodeCount) {
+            throw new NoSuchElementException("Node not found in graph");
+        }
+        return node;
+    }
+
+    // Finds the node whose arc range contains the given arc
+    private int sourceOf(int arc) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets.get(middle) <= arc) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private Edge<Integer> edgeAt(int arc) {
+        return new Edge<>(targets.get(arc), weights.get(arc), string(arcNames.get(arc)));
+    }
+
+    private String string(int index) {
+        int start = stringOffsets.get(index);
+        byte[] bytes = new byte[stringOffsets.get(index + 1) - start];
+        stringBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length);
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// A bounded least-recently-used cache of shortest paths keyed by (from, to). It listens to
+// the graph and only drops the paths a change could affect:
+// - a removed connection or a weight increase affects the paths that use that connection
+// - a removed node affects the paths that start, end or pass through it
+// - a new connection or a weight decrease to w can only give a shorter path to pairs
+//   whose path is longer than w
+// Pairs without a path are not cached; ConnectivityIndex answers those directly.
+public class PathCache<T> implements GraphListener<T> {
+
+    private final int capacity;
+
+    // Entries in order of use, least recently used first
+    private final LinkedHashMap<Key<T>, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // The entries whose path starts, ends or passes through each node
+    private final HashMap<T, Set<Entry<T>>> entriesByNode = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    private static class Key<T> {
+        final T from;
+        final T to;
+
+        Key(T from, T to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key<?> other = (Key<?>) o;
+            return from.equals(other.from) && to.equals(other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+    }
+
+    // A cached path with the nodes along it
+    private static class Entry<T> {
+        final Key<T> key;
+        final List<Edge<T>> path;
+        final List<T> nodes = new ArrayList<>();
+        final long length;
+
+        Entry(Key<T> key, List<Edge<T>> path) {
+            this.key = key;
+            this.path = path;
+            nodes.add(key.from);
+            long sum = 0;
+            for (Edge<T> edge : path) {
+                nodes.add(edge.getDestination());
+                sum += edge.getWeight();
+            }
+            this.length = sum;
+        }
+
+        // Checks if the path goes directly between the two nodes, in either direction
+        boolean uses(T node1, T node2) {
+            for (int i = 1; i < nodes.size(); i++) {
+                T previous = nodes.get(i - 1);
+                T current = nodes.get(i);
+                if ((previous.equals(node1) && current.equals(node2))
+                        || (previous.equals(node2) && current.equals(node1))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public PathCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    // Returns a copy of the cached path, or null if the pair is not cached
+    public List<Edge<T>> get(T from, T to) {
+        Entry<T> entry = entries.get(new Key<>(from, to));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.path);
+    }
+
+    // Caches the path between two nodes
+    public void put(T from, T to, List<Edge<T>> path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        Key<T> key = new Key<>(from, to);
+        Entry<T> old = entries.get(key);
+        if (old != null) {
+            remove(old);
+        }
+
+        Entry<T> entry = new Entry<>(key, new ArrayList<>(path));
+        entries.put(key, entry);
+        for (T node : entry.nodes) {
+            entriesByNode.computeIfAbsent(node, n -> new HashSet<>()).add(entry);
+        }
+
+        if (entries.size() > capacity) {
+            remove(entries.values().iterator().next());
+            evictions++;
+        }
+    }
+
+    public void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        entriesByNode.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public void nodeRemoved(T node) {
+        invalidate(entriesByNode.get(node), entry -> true);
+    }
+
+    @Override
+    public void connected(T node1, T node2, String name, int weight) {
+        invalidate(entries.values(), entry -> entry.length > weight);
+    }
+
+    @Override
+    public void disconnected(T node1, T node2) {
+        invalidate(entriesByNode.get(node1), entry -> entry.uses(node1, node2));
+    }
+
+    @Override
+    public void weightChanged(T node1, T node2, int oldWeight, int newWeight) {
+        if (newWeight < oldWeight) {
+            // A path using the connection is at least as long as its old weight, so it
+            // is covered by the length check too
+            invalidate(entries.values(), entry -> entry.length > newWeight);
+        } else if (newWeight > oldWeight) {
+            invalidate(entriesByNode.get(node1), entry -> entry.uses(node1, node2));
+        }
+    }
+
+    // Drops the entries among the candidates that match the filter
+    private void invalidate(Iterable<Entry<T>> candidates, Predicate<Entry<T>> filter) {
+        if (candidates == null) {
+            return;
+        }
+        List<Entry<T>> matching = new ArrayList<>();
+        for (Entry<T> entry : candidates) {
+            if (filter.test(entry)) {
+                matching.add(entry);
+            }
+        }
+        for (Entry<T> entry : matching) {
+            remove(entry);
+            invalidations++;
+        }
+    }
+
+    private void remove(Entry<T> entry) {
+        entries.remove(entry.key);
+        for (T node : entry.nodes) {
+            Set<Entry<T>> nodeEntries = entriesByNode.get(node);
+            if (nodeEntries != null) {
+                nodeEntries.remove(entry);
+                if (nodeEntries.isEmpty()) {
+                    entriesByNode.remove(node);
+                }
+            }
+        }
+    }
+}
@@ -1,4 +1,6 @@
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.embed.swing.SwingFXUtils;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
@@ -16,7 +18,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.VBox;
-import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -25,19 +27,21 @@ import javafx.scene.layout.Pane;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PathFinder extends Application {
 
@@ -62,6 +66,47 @@ public class PathFinder extends Application {
     // Tracks if changes were made to the map
     private boolean changed;
 
+    // Finds cities by position, kept in sync with the graph as a listener
+    private SpatialIndex<City> spatialIndex = new SpatialIndex<>();
+
+    // A click this close to a city selects it; twice the radius of a city
+    private static final double CLICK_RADIUS = 20;
+
+    // Recent Find Path results kept by the graph, so asking again skips the search
+    private static final int PATH_CACHE_SIZE = 256;
+
+    // Selects cities for the whole map; cities are transparent to the mouse
+    private final ClickHandler clickHandler = new ClickHandler();
+
+    // Cities currently shown; cities outside the visible part of the map are hidden
+    private final Set<City> visibleCities = new HashSet<>();
+
+    // Draws every connection onto one canvas between the map image and the cities
+    private final EdgeLayer<City> edgeLayer = new EdgeLayer<>();
+
+    // Records every change to the map next to the map file between saves, or null while
+    // the map has not been opened or saved
+    private GraphJournal<City> journal;
+
+    // Runs opening, saving and path searches off the JavaFX Application Thread, one at a
+    // time. The map cannot be edited until the worker thread has returned from a task, even
+    // a cancelled one, so tasks can read the graph and its caches safely.
+    private final ExecutorService background = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PathFinder background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int runningTasks;
+
+    // The path search in progress, cancelled when another search replaces it
+    private Task<List<Edge<City>>> pathTask;
+
+    // Status bar showing the progress of background tasks
+    private HBox statusBar;
+    private ProgressBar progressBar = new ProgressBar();
+    private Label statusLabel = new Label();
+    private Button cancelTask = new Button("Cancel");
+
     // Buttons for user actions
     private Button findPath = new Button("Find Path");
     private Button showConnection = new Button("Show connection");
@@ -84,9 +129,31 @@ public class PathFinder extends Application {
         this.stage = primaryStage;
         primaryStage.setTitle("PathFinder");
 
+        listGraph.enablePathCache(PATH_CACHE_SIZE);
+        listGraph.setHeuristicFactory(EuclideanHeuristic::forGraph);
+        listGraph.setSearchStrategy(SearchStrategy.A_STAR);
+        listGraph.addGraphListener(spatialIndex);
+        listGraph.addGraphListener(edgeLayer);
+
+        // Query, load and save costs over JMX, and in the log when enabled at startup
+        GraphMetrics.get().register();
+        GraphMetrics.watch(listGraph);
+        if (GraphMetrics.get().isEnabled()) {
+            GraphMetrics.get().startLogging(60, System.out);
+        }
+
         // Initialize layout
         root = new BorderPane();
         center = new Pane();
+        center.setOnMouseClicked(clickHandler);
+
+        // Clip the map to the pane, and show only the cities inside it when it is resized
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(center.widthProperty());
+        clip.heightProperty().bind(center.heightProperty());
+        center.setClip(clip);
+        center.widthProperty().addListener((observable, oldWidth, newWidth) -> cullCities());
+        center.heightProperty().addListener((observable, oldHeight, newHeight) -> cullCities());
 
         // Create a horizontal button bar
         HBox buttonBar = new HBox();
@@ -121,8 +188,11 @@ public class PathFinder extends Application {
                 alert.setHeaderText("");
                 Optional<ButtonType> button = alert.showAndWait();
 
-                if (button.isPresent() & button.get().equals(ButtonType.CANCEL)) {
+                if (button.isPresent() && button.get().equals(ButtonType.CANCEL)) {
                     event.consume();
+                    return;
+                } else {
+                    closeJournal();
                 }
             }
         });
@@ -154,12 +224,112 @@ public class PathFinder extends Application {
         root.setTop(topContainer);
         root.setCenter(center);
 
+        // Status bar at the bottom, shown while a background task runs
+        statusBar = new HBox(progressBar, statusLabel, cancelTask);
+        statusBar.setAlignment(Pos.CENTER_LEFT);
+        statusBar.setSpacing(10);
+        statusBar.setVisible(false);
+        root.setBottom(statusBar);
+
         // Finalize and show scene
         Scene scene = new Scene(root);
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    // Runs a task on the background thread, showing its progress in the status bar and
+    // keeping the map from being edited until it is done. A cancelled task is marked
+    // CANCELLED at once, while call() may still be reading the graph, so the map is only
+    // unlocked once the worker thread has returned from it.
+    private void runInBackground(Task<?> task) {
+        runningTasks++;
+        setEditingDisabled(true);
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        cancelTask.setOnAction(event -> task.cancel());
+        statusBar.setVisible(true);
+
+        background.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                Platform.runLater(this::taskFinished);
+            }
+        });
+    }
+
+    private void taskFinished() {
+        runningTasks--;
+        if (runningTasks == 0) {
+            progressBar.progressProperty().unbind();
+            statusLabel.textProperty().unbind();
+            statusBar.setVisible(false);
+            setEditingDisabled(false);
+        }
+    }
+
+    private void setEditingDisabled(boolean disabled) {
+        if (disabled) {
+            // A click that would add a place while a task runs is a plain selection instead
+            center.setOnMouseClicked(clickHandler);
+            center.setCursor(Cursor.DEFAULT);
+        }
+        newMap.setDisable(disabled);
+        open.setDisable(disabled);
+        save.setDisable(disabled);
+        btnNewPlace.setDisable(disabled);
+        newConnection.setDisable(disabled);
+        changeConnection.setDisable(disabled);
+    }
+
+    // Shows the cities inside the visible part of the map and hides the rest, so that
+    // cities off screen are neither drawn nor picked
+    private void cullCities() {
+        double margin = CLICK_RADIUS;
+        List<City> inView = spatialIndex.inRectangle(-margin, -margin,
+                center.getWidth() + margin, center.getHeight() + margin);
+        Set<City> shown = new HashSet<>(inView);
+        for (City city : visibleCities) {
+            if (!shown.contains(city)) {
+                city.setVisible(false);
+            }
+        }
+        for (City city : inView) {
+            city.setVisible(true);
+        }
+        visibleCities.clear();
+        visibleCities.addAll(shown);
+    }
+
+    private Path journalPath() {
+        return GraphJournal.journalOf(Paths.get(graphFilePath));
+    }
+
+    // Stops journaling the current map and drops the changes made since it was last saved,
+    // which the user has chosen to lose
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        listGraph.removeGraphListener(journal);
+        try {
+            journal.discardUnsaved();
+            journal.close();
+        } catch (IOException e) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "IO-fel " + e.getMessage());
+            alert.showAndWait();
+        }
+        journal = null;
+    }
+
+    // Stops the path search in progress, if any
+    private void cancelPathSearch() {
+        if (pathTask != null) {
+            pathTask.cancel();
+            pathTask = null;
+        }
+    }
+
     // Handler for creating a new map
     class NewMapHandler implements EventHandler<ActionEvent> {
         @Override
@@ -170,8 +340,9 @@ public class PathFinder extends Application {
                 alert.setContentText("Unsaved changes, continue anyway?");
                 Optional<ButtonType> button = alert.showAndWait();
 
-                if (button.isPresent() & button.get().equals(ButtonType.CANCEL)) {
+                if (button.isPresent() && button.get().equals(ButtonType.CANCEL)) {
                     event.consume();
+                    return;
                 }
             }
             changed = true;
@@ -182,20 +353,32 @@ public class PathFinder extends Application {
 
             // Clear existing cities and connections
             center.getChildren().clear();
-            center.getChildren().add(imageView);
+            center.getChildren().addAll(imageView, edgeLayer);
+            visibleCities.clear();
             firstCity = null;
             secondCity = null;
 
+            // The new map belongs to no file until it is saved
+            closeJournal();
+
             // Remove all cities from graph
             ArrayList<City> cityList = new ArrayList<>(listGraph.getNodes());
             for (City city : cityList) {
                 listGraph.remove(city);
             }
 
+            showEdges();
             stage.sizeToScene();
         }
     }
 
+    // Sizes the connection layer to the map image and draws the current graph on it
+    private void showEdges() {
+        edgeLayer.setWidth(image.getWidth());
+        edgeLayer.setHeight(image.getHeight());
+        edgeLayer.show(listGraph, spatialIndex);
+    }
+
     // Handler for opening a saved map
     class OpenHandler implements EventHandler<ActionEvent> {
         @Override
@@ -212,104 +395,120 @@ public class PathFinder extends Application {
                     return;
                 }
             }
+            closeJournal();
+
+            // Read the snapshot and the saved changes in the journal into a new graph in the
+            // background; the current map stays until it is done
+            ListGraph<City> loaded = new ListGraph<>();
+            GraphReader<City> reader = new GraphReader<>(City::new);
+            SpatialIndex<City> index = new SpatialIndex<>();
+            Task<GraphJournal<City>> task = new Task<>() {
+                @Override
+                protected GraphJournal<City> call() throws IOException {
+                    updateMessage("Opening " + graphFilePath);
+                    reader.setProgressListener(lines -> updateMessage("Read " + lines + " lines"));
+                    reader.read(Paths.get(graphFilePath), loaded);
+                    GraphJournal<City> opened = GraphJournal.open(journalPath());
+                    try {
+                        updateMessage("Replaying " + opened.getFile());
+                        opened.replay(loaded, City::new, false);
+                    } catch (IOException | RuntimeException e) {
+                        opened.close();
+                        throw e;
+                    }
+                    index.addAll(loaded.getNodes());
+                    return opened;
+                }
+            };
+            task.setOnSucceeded(done -> showMap(loaded, index, reader, task.getValue()));
+            task.setOnFailed(failed -> {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Open");
+                alert.setHeaderText("Open failed");
+                if (task.getException() instanceof NoSuchFileException) {
+                    alert.setContentText("The file was not found");
+                } else {
+                    alert.setContentText(task.getException().getMessage());
+                }
+                alert.showAndWait();
+            });
+            runInBackground(task);
+        }
 
-            // Remove existing cities and clear UI
-            ArrayList<City> cityList = new ArrayList<>(listGraph.getNodes());
-            for (City city : cityList) {
-                listGraph.remove(city);
-            }
-
+        // Replaces the current map with a graph that was read from file
+        private void showMap(ListGraph<City> loaded, SpatialIndex<City> index, GraphReader<City> reader,
+                GraphJournal<City> opened) {
+            listGraph = loaded;
+            listGraph.enablePathCache(PATH_CACHE_SIZE);
+            listGraph.setHeuristicFactory(EuclideanHeuristic::forGraph);
+            listGraph.setSearchStrategy(SearchStrategy.A_STAR);
+            spatialIndex = index;
+            listGraph.addGraphListener(spatialIndex);
+            listGraph.addGraphListener(edgeLayer);
+            GraphMetrics.watch(listGraph);
+            journal = opened;
+            recoverUnsaved();
+            watchJournal();
             center.getChildren().clear();
+            visibleCities.clear();
             firstCity = null;
             secondCity = null;
-            BufferedReader reader = null;
-
-            try {
-                reader = new BufferedReader(new FileReader(graphFilePath));
-                String line;
-                int lineCount = 0;
-
-                while ((line = reader.readLine()) != null) {
-                    lineCount++;
-
-                    // Line 1: map background image
-                    if (lineCount == 1) {
-                        image = new Image(line);
-                        imageView = new ImageView(image);
-                        center.getChildren().add(imageView);
-                        continue;
-                    }
 
-                    // Line 2: list of cities
-                    if (lineCount == 2) {
-                        String[] parts = line.split(";");
-                        for (int i = 0; i < parts.length; i += 3) {
-                            String name = parts[i];
-                            double x = Double.parseDouble(parts[i + 1]);
-                            double y = Double.parseDouble(parts[i + 2]);
-                            City city = new City(name, x, y);
-                            center.getChildren().add(city);
-                            listGraph.add(city);
-                            city.setOnMouseClicked(new ClickHandler());
-                            city.toFront();
-                        }
-                        continue;
-                    }
+            // Map background image
+            image = new Image(reader.getImagePath());
+            imageView = new ImageView(image);
+            center.getChildren().addAll(imageView, edgeLayer);
+            showEdges();
+
+            // Cities go on top of the connections
+            Set<City> cities = listGraph.getNodes();
+            for (City city : cities) {
+                city.setMouseTransparent(true);
+                city.setVisible(false);
+                center.getChildren().add(city);
+            }
 
-                    // Lines 3+: connections between cities
-                    if (lineCount >= 3) {
-                        String[] parts = line.split(";");
-                        String sourceName = parts[0];
-                        String destinationName = parts[1];
-                        String connectionName = parts[2];
-                        int weight = Integer.parseInt(parts[3]);
-
-                        City source = null;
-                        City destination = null;
-
-                        // Find source and destination cities
-                        for (City city : listGraph.getNodes()) {
-                            if (city.getName().equals(sourceName)) {
-                                source = city;
-                            }
-                            if (city.getName().equals(destinationName)) {
-                                destination = city;
-                            }
-                        }
+            stage.sizeToScene();
+            cullCities();
+        }
+    }
 
-                        // If connection does not already exist, add it
-                        if (listGraph.getEdgeBetween(source, destination) == null) {
-                            listGraph.connect(source, destination, connectionName, weight);
-                            Line drawLine = new Line(
-                                    source.getCenterX(), source.getCenterY(),
-                                    destination.getCenterX(), destination.getCenterY());
-                            center.getChildren().add(drawLine);
-                            drawLine.setStrokeWidth(2);
-                            drawLine.setDisable(true);
-                            source.toFront();
-                            destination.toFront();
-                        }
-                    }
-                }
+    // Starts recording the changes to the map in the journal. A change that cannot be
+    // recorded is reported once the graph operation that made it has finished.
+    private void watchJournal() {
+        Path file = journal.getFile();
+        journal.setFailureListener(e -> Platform.runLater(() -> {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Changes can no longer be recorded in "
+                    + file + ": " + e.getMessage() + "\nSave the map to write it in full.");
+            alert.setTitle("Journal");
+            alert.setHeaderText("");
+            alert.showAndWait();
+        }));
+        listGraph.addGraphListener(journal);
+    }
 
-                stage.sizeToScene();
-            } catch (FileNotFoundException e) {
-                Alert alert = new Alert(Alert.AlertType.ERROR);
-                alert.setTitle("Open");
-                alert.setHeaderText("Open failed");
-                alert.setContentText("The file was not found");
-                alert.showAndWait();
-            } catch (IOException e) {
-                return;
-            } finally {
-                try {
-                    if (reader != null) {
-                        reader.close();
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+    // Offers to bring back the changes that were made after the last save but never saved,
+    // for example because the program crashed
+    private void recoverUnsaved() {
+        int unsaved = journal.getUnsavedCount();
+        if (unsaved == 0) {
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION,
+                unsaved + " changes to the map were never saved. Recover them?");
+        alert.setTitle("Recover");
+        alert.setHeaderText("");
+        Optional<ButtonType> button = alert.showAndWait();
+        try {
+            if (button.isPresent() && button.get().equals(ButtonType.OK)) {
+                journal.replay(listGraph, City::new, true);
+                changed = true;
+            } else {
+                journal.discardUnsaved();
             }
+        } catch (IOException e) {
+            Alert error = new Alert(Alert.AlertType.ERROR, "IO-fel " + e.getMessage());
+            error.showAndWait();
         }
     }
 
@@ -317,49 +516,59 @@ public class PathFinder extends Application {
     class SaveHandler implements EventHandler<ActionEvent> {
         @Override
         public void handle(ActionEvent event) {
-            BufferedWriter writer = null;
-            try {
-                writer = new BufferedWriter(new FileWriter(graphFilePath));
-
-                Set<City> cities = listGraph.getNodes();
-                String edges = "";
-                String nodes = "";
-                boolean first = false;
-
-                // Save city information
-                for (City city : cities) {
-                    if (!first) {
-                        nodes += city.saveInfo();
-                        first = true;
-                    } else {
-                        nodes += ";" + city.saveInfo();
+            ListGraph<City> graph = listGraph;
+            GraphJournal<City> current = journal;
+            int placeCount = graph.getNodes().size();
+            GraphWriter<City> writer = new GraphWriter<>(imageFilePath);
+            Task<GraphJournal<City>> task = new Task<>() {
+                @Override
+                protected GraphJournal<City> call() throws IOException {
+                    writer.setProgressListener(places -> updateProgress(places, placeCount));
+                    Path snapshot = Paths.get(graphFilePath);
+
+                    // The changes are already in the journal; saving marks them as saved, and
+                    // the whole map is only written when the journal has grown large, or is
+                    // missing changes it could not record
+                    if (current != null && current.hasFailed()) {
+                        updateMessage("Saving " + graphFilePath);
+                        current.compact(graph, writer, snapshot);
+                        return current;
+                    } else if (current != null) {
+                        updateMessage("Saving changes to " + current.getFile());
+                        long start = GraphMetrics.start();
+                        current.save();
+                        GraphMetrics.saved(start);
+                        if (current.needsCompaction(Files.size(snapshot))) {
+                            updateMessage("Compacting " + graphFilePath);
+                            current.compact(graph, writer, snapshot);
+                        }
+                        return current;
                     }
 
-                    // Save connections (edges) from this city
-                    for (var edge : listGraph.getEdgesFrom(city)) {
-                        edges += city.getName() + ";" +
-                                edge.getDestination().getName() + ";" +
-                                edge.getName() + ";" +
-                                edge.getWeight() + "\n";
+                    // A map without a journal is written in full, and journaled from then on
+                    updateMessage("Saving " + graphFilePath);
+                    GraphJournal<City> created = GraphJournal.open(journalPath());
+                    try {
+                        created.compact(graph, writer, snapshot);
+                    } catch (IOException | RuntimeException e) {
+                        created.close();
+                        throw e;
                     }
+                    return created;
                 }
-
-                // Write map image path
-                writer.write(imageFilePath);
-                writer.newLine();
-
-                // Write city data
-                writer.write(nodes);
-                writer.newLine();
-
-                // Write connection data
-                writer.write(edges);
-                writer.close();
-
-            } catch (IOException e) {
-                return;
-            }
-            changed = false; // Reset change flag after save
+            };
+            task.setOnSucceeded(done -> {
+                changed = false; // Reset change flag after save
+                if (journal == null) {
+                    journal = task.getValue();
+                    watchJournal();
+                }
+            });
+            task.setOnFailed(failed -> {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "IO-fel " + task.getException().getMessage());
+                alert.showAndWait();
+            });
+            runInBackground(task);
         }
     }
 
@@ -428,14 +637,8 @@ public class PathFinder extends Application {
                     } else {
                         try {
                             int timeAnswerInteger = Integer.parseInt(timeAnswer);
+                            // The connection layer draws it once the graph reports it
                             listGraph.connect(firstCity, secondCity, nameAnswer, timeAnswerInteger);
-                            Line line = new Line(firstCity.getCenterX(), firstCity.getCenterY(),
-                                    secondCity.getCenterX(), secondCity.getCenterY());
-                            center.getChildren().add(line);
-                            line.setStrokeWidth(2);
-                            line.setDisable(true);
-                            firstCity.toFront();
-                            secondCity.toFront();
                             changed = true;
                         } catch (NumberFormatException ex) {
                             showError("Wrong input for time, must be an Integer!");
@@ -548,36 +751,75 @@ public class PathFinder extends Application {
 
     // Calculates and displays the shortest path between two cities
     class FindPathHandler implements EventHandler<ActionEvent> {
+        // Origin of the previous search
+        private City lastOrigin;
+
         @Override
         public void handle(ActionEvent event) {
             if (firstCity == null || secondCity == null) {
                 showError("Two places must be selected");
             } else {
-                List<Edge<City>> path = listGraph.getPath(firstCity, secondCity);
-
-                if (path == null) {
-                    showError("No path exists between the selected cities");
-                } else {
-                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                    alert.setTitle("Message");
-                    alert.setHeaderText("The Path from " + firstCity.getName() + " to " + secondCity.getName() + ":");
+                // A new search replaces one that is still running
+                cancelPathSearch();
+                ListGraph<City> graph = listGraph;
+                City from = firstCity;
+                City to = secondCity;
+                boolean repeatedOrigin = from.equals(lastOrigin);
+                lastOrigin = from;
+                Task<List<Edge<City>>> task = new Task<>() {
+                    @Override
+                    protected List<Edge<City>> call() {
+                        updateMessage("Finding path from " + from.getName() + " to " + to.getName());
+
+                        // A single query stops as soon as it reaches the destination, and goes
+                        // through the path cache. When the same place is the origin again, its
+                        // whole tree is built and kept, so later queries from it answer at once.
+                        if (repeatedOrigin || graph.hasShortestPathTree(from)) {
+                            return graph.shortestPathTree(from).pathTo(to);
+                        }
+                        return graph.getPath(from, to);
+                    }
+                };
+                task.setOnSucceeded(done -> {
+                    if (pathTask == task) {
+                        pathTask = null;
+                        showPath(from, to, task.getValue());
+                    }
+                });
+                task.setOnFailed(failed -> {
+                    if (pathTask == task) {
+                        pathTask = null;
+                        showError(task.getException().getMessage());
+                    }
+                });
+                pathTask = task;
+                runInBackground(task);
+            }
+        }
 
-                    StringBuilder contentText = new StringBuilder();
-                    int totalTravelTime = 0;
+        private void showPath(City from, City to, List<Edge<City>> path) {
+            if (path == null) {
+                showError("No path exists between the selected cities");
+            } else {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Message");
+                alert.setHeaderText("The Path from " + from.getName() + " to " + to.getName() + ":");
 
-                    // Reverse path for display
-                    List<Edge<City>> reversedPath = new ArrayList<>(path);
-                    Collections.reverse(reversedPath);
+                StringBuilder contentText = new StringBuilder();
+                int totalTravelTime = 0;
 
-                    for (Edge<City> edge : reversedPath) {
-                        contentText.append(edge.toString()).append("\n");
-                        totalTravelTime += edge.getWeight();
-                    }
+                // Reverse path for display
+                List<Edge<City>> reversedPath = new ArrayList<>(path);
+                Collections.reverse(reversedPath);
 
-                    contentText.append("Total ").append(totalTravelTime);
-                    alert.setContentText(contentText.toString());
-                    alert.showAndWait();
+                for (Edge<City> edge : reversedPath) {
+                    contentText.append(edge.toString()).append("\n");
+                    totalTravelTime += edge.getWeight();
                 }
+
+                contentText.append("Total ").append(totalTravelTime);
+                alert.setContentText(contentText.toString());
+                alert.showAndWait();
             }
         }
 
@@ -589,11 +831,18 @@ public class PathFinder extends Application {
         }
     }
 
-    // Handles city selection (red/blue highlighting and toggling)
+    // Handles city selection (red/blue highlighting and toggling). Clicks on the map are
+    // resolved to the nearest city through the spatial index.
     class ClickHandler implements EventHandler<MouseEvent> {
         @Override
         public void handle(MouseEvent event) {
-            City city = (City) event.getSource();
+            City city = spatialIndex.nearest(event.getX(), event.getY(), CLICK_RADIUS);
+            if (city == null) {
+                return;
+            }
+
+            // A search for the old pair of cities is no longer wanted
+            cancelPathSearch();
 
             if (city.isMarked() && city.equals(firstCity)) {
                 firstCity.setMarked(false);
@@ -630,9 +879,10 @@ public class PathFinder extends Application {
                 double x = event.getX();
                 double y = event.getY();
                 City city = new City(name, x, y);
+                city.setMouseTransparent(true);
                 center.getChildren().add(city);
                 listGraph.add(city);
-                city.setOnMouseClicked(new ClickHandler());
+                visibleCities.add(city);
                 changed = true;
             } else {
                 Alert alert = new Alert(Alert.AlertType.ERROR, "Name can't be empty!", ButtonType.OK);
@@ -644,7 +894,7 @@ public class PathFinder extends Application {
             // Reset cursor and re-enable button
             center.setCursor(Cursor.DEFAULT);
             btnNewPlace.setDisable(false);
-            center.setOnMouseClicked(null);
+            center.setOnMouseClicked(clickHandler);
         }
     }
 
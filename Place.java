@@ -0,0 +1,9 @@
+// A named node with a position on the map, in pixels
+public interface Place {
+
+    String getName();
+
+    double getX();
+
+    double getY();
+}
@@ -0,0 +1,5 @@
+// Creates the node for a place read from a graph file
+public interface PlaceFactory<T> {
+
+    T create(String name, double x, double y);
+}
@@ -0,0 +1,17 @@
+// The algorithms ListGraph.getPath can use to find shortest paths
+public enum SearchStrategy {
+
+    // Plain Dijkstra from the start node, stopping when the target is settled
+    DIJKSTRA,
+
+    // Dijkstra from both ends at once, stopping when the two searches meet
+    BIDIRECTIONAL,
+
+    // A*: Dijkstra guided towards the target by the heuristic the graph's heuristic factory
+    // makes, and plain Dijkstra when it has none
+    A_STAR,
+
+    // Upward searches on a Contraction Hierarchy that is built on the first query and
+    // rebuilt after the graph changes
+    CONTRACTION_HIERARCHIES
+}
@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+// The shortest paths from one source to every node of a graph, found with a single
+// Dijkstra search. Distances and predecessors are kept in primitive arrays indexed by
+// dense node ids, so any number of destinations can be looked up afterwards in time
+// proportional to the length of their path. The tree describes the graph as it was when
+// the tree was built, except that it can be repaired after a connection weight changes.
+public class ShortestPathTree<T> {
+
+    // The distance of a node that cannot be reached from the source
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Graph<T> graph;
+    private final T source;
+
+    private final T[] nodes;
+    private final HashMap<T, Integer> ids;
+
+    // Per id: distance from the source, and the previous node id and edge on the way there
+    private final int[] distances;
+    private final int[] previous;
+    private final Edge<T>[] previousEdges;
+
+    // Reused by every search on the tree; empty between searches
+    private final IndexedMinHeap queue;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public ShortestPathTree(Graph<T> graph, T source) {
+        this.graph = graph;
+        this.source = source;
+        Set<T> graphNodes = graph.getNodes();
+        nodes = (T[]) graphNodes.toArray();
+        int n = nodes.length;
+        ids = new HashMap<>(n * 4 / 3 + 1);
+        for (int i = 0; i < n; i++) {
+            ids.put(nodes[i], i);
+        }
+
+        distances = new int[n];
+        previous = new int[n];
+        previousEdges = (Edge<T>[]) new Edge[n];
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(previous, -1);
+
+        int start = idOf(source);
+        distances[start] = 0;
+        queue = new IndexedMinHeap(n);
+        queue.insert(start, 0);
+        propagate();
+    }
+
+    public T getSource() {
+        return source;
+    }
+
+    public Graph<T> getGraph() {
+        return graph;
+    }
+
+    public boolean isReachable(T node) {
+        return distances[idOf(node)] != UNREACHABLE;
+    }
+
+    // Returns the length of the shortest path from the source, or UNREACHABLE
+    public int distanceTo(T node) {
+        return distances[idOf(node)];
+    }
+
+    // Returns the shortest path from the source to a node, or null if there is none
+    public List<Edge<T>> pathTo(T node) {
+        int target = idOf(node);
+        if (distances[target] == UNREACHABLE) {
+            return null;
+        }
+        ArrayList<Edge<T>> path = new ArrayList<>();
+        for (int current = target; previous[current] >= 0; current = previous[current]) {
+            path.add(previousEdges[current]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Repairs the tree after the weight of the connection between two nodes was changed in
+    // the graph, touching only the nodes whose distance changes (in the style of
+    // Ramalingam and Reps). Returns the number of nodes that were updated.
+    public int updateWeight(T node1, T node2, int oldWeight, int newWeight) {
+        int id1 = idOf(node1);
+        int id2 = idOf(node2);
+        refreshEdge(id1, id2);
+        refreshEdge(id2, id1);
+        if (newWeight < oldWeight) {
+            return decreased(id1, id2, newWeight) + decreased(id2, id1, newWeight);
+        } else if (newWeight > oldWeight) {
+            if (previous[id2] == id1) {
+                return increased(id2);
+            } else if (previous[id1] == id2) {
+                return increased(id1);
+            }
+        }
+        return 0;
+    }
+
+    // A cheaper connection can only shorten paths through it: relax it and let the
+    // improvement spread with Dijkstra from the node it leads to
+    private int decreased(int from, int to, int weight) {
+        if (distances[from] == UNREACHABLE || distances[from] + weight >= distances[to]) {
+            return 0;
+        }
+        distances[to] = distances[from] + weight;
+        previous[to] = from;
+        previousEdges[to] = graph.getEdgeBetween(nodes[from], nodes[to]);
+        queue.insert(to, distances[to]);
+        return propagate();
+    }
+
+    // A tree connection got more expensive: the subtree hanging from 'root' may find other
+    // ways in, so its distances are reset, seeded from the unaffected nodes around it and
+    // settled again
+    private int increased(int root) {
+        ArrayList<Integer> subtree = new ArrayList<>();
+        subtree.add(root);
+        distances[root] = UNREACHABLE;
+        for (int i = 0; i < subtree.size(); i++) {
+            int current = subtree.get(i);
+            for (Edge<T> edge : graph.getEdgesFrom(nodes[current])) {
+                int next = ids.get(edge.getDestination());
+                if (previous[next] == current && distances[next] != UNREACHABLE) {
+                    distances[next] = UNREACHABLE;
+                    subtree.add(next);
+                }
+            }
+        }
+
+        for (int node : subtree) {
+            previous[node] = -1;
+            previousEdges[node] = null;
+            for (Edge<T> edge : graph.getEdgesFrom(nodes[node])) {
+                int neighbour = ids.get(edge.getDestination());
+                int distance = distances[neighbour];
+                if (distance != UNREACHABLE && distance + edge.getWeight() < distances[node]) {
+                    distances[node] = distance + edge.getWeight();
+                    previous[node] = neighbour;
+                    previousEdges[node] = graph.getEdgeBetween(nodes[neighbour], nodes[node]);
+                }
+            }
+            if (distances[node] != UNREACHABLE) {
+                queue.insert(node, distances[node]);
+            }
+        }
+        propagate();
+        return subtree.size();
+    }
+
+    // Runs Dijkstra from the queued nodes, and returns the number of nodes settled. Throws
+    // CancellationException if the thread is interrupted.
+    private int propagate() {
+        int settled = 0;
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            settled++;
+            if (settled % DijkstraSearch.INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                queue.clear();
+                throw new CancellationException("Search was interrupted");
+            }
+            int distance = distances[current];
+            for (Edge<T> edge : graph.getEdgesFrom(nodes[current])) {
+                int next = ids.get(edge.getDestination());
+                int nextDistance = distance + edge.getWeight();
+                if (nextDistance < distances[next]) {
+                    distances[next] = nextDistance;
+                    previous[next] = current;
+                    previousEdges[next] = edge;
+                    queue.insertOrDecrease(next, nextDistance);
+                }
+            }
+        }
+        return settled;
+    }
+
+    // Graphs that hand out copies of their edges need the copy with the new weight
+    private void refreshEdge(int from, int to) {
+        if (previous[to] == from) {
+            previousEdges[to] = graph.getEdgeBetween(nodes[from], nodes[to]);
+        }
+    }
+
+    // Returns the distance to every node that can be reached, for example to colour a map
+    // by travel time
+    public HashMap<T, Integer> getDistances() {
+        HashMap<T, Integer> result = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (distances[i] != UNREACHABLE) {
+                result.put(nodes[i], distances[i]);
+            }
+        }
+        return result;
+    }
+
+    int getNodeCount() {
+        return nodes.length;
+    }
+
+    T nodeAt(int id) {
+        return nodes[id];
+    }
+
+    int distanceAt(int id) {
+        return distances[id];
+    }
+
+    // Returns the id of the node before 'id' on the way from the source, or -1
+    int previousAt(int id) {
+        return previous[id];
+    }
+
+    int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new NoSuchElementException("Node not found in graph");
+        }
+        return id;
+    }
+}
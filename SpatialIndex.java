@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+// Finds places by position: the nearest place to a point, and the places within a radius
+// or a rectangle. Places are kept in a uniform grid of square cells, stored sparsely by
+// cell, so a query only looks at the cells around it. Registered as a listener on a graph,
+// the index follows the places that are added and removed. A place must not move while it
+// is in the index.
+public class SpatialIndex<T extends Place> implements GraphListener<T> {
+
+    // Cell side in pixels, about the distance between neighbouring cities on a map
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    private final double cellSize;
+
+    private final HashMap<Long, List<T>> cells = new HashMap<>();
+    private final HashMap<T, Long> cellOf = new HashMap<>();
+
+    // Bounds of the cells that have held places; they are not shrunk on removal
+    private int minCellX = Integer.MAX_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    public void nodeAdded(T node) {
+        add(node);
+    }
+
+    public void nodeRemoved(T node) {
+        remove(node);
+    }
+
+    public void add(T place) {
+        if (cellOf.containsKey(place)) {
+            return;
+        }
+        int cellX = cell(place.getX());
+        int cellY = cell(place.getY());
+        long key = key(cellX, cellY);
+        cells.computeIfAbsent(key, k -> new ArrayList<>(4)).add(place);
+        cellOf.put(place, key);
+        minCellX = Math.min(minCellX, cellX);
+        minCellY = Math.min(minCellY, cellY);
+        maxCellX = Math.max(maxCellX, cellX);
+        maxCellY = Math.max(maxCellY, cellY);
+    }
+
+    public void addAll(Collection<? extends T> places) {
+        for (T place : places) {
+            add(place);
+        }
+    }
+
+    public void remove(T place) {
+        Long key = cellOf.remove(place);
+        if (key == null) {
+            return;
+        }
+        List<T> cell = cells.get(key);
+        cell.remove(place);
+        if (cell.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        cellOf.clear();
+        minCellX = Integer.MAX_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+    }
+
+    public boolean contains(T place) {
+        return cellOf.containsKey(place);
+    }
+
+    public int size() {
+        return cellOf.size();
+    }
+
+    // Returns the place nearest to a point, or null if the index is empty
+    public T nearest(double x, double y) {
+        return nearest(x, y, Double.POSITIVE_INFINITY);
+    }
+
+    // Returns the place nearest to a point that is at most 'maxDistance' away, or null.
+    // The rings of cells around the point are searched outwards until no cell further out
+    // can hold a nearer place.
+    public T nearest(double x, double y, double maxDistance) {
+        if (cellOf.isEmpty()) {
+            return null;
+        }
+        int centerX = cell(x);
+        int centerY = cell(y);
+        long lastRing = Math.max(
+                Math.max((long) centerX - minCellX, (long) maxCellX - centerX),
+                Math.max((long) centerY - minCellY, (long) maxCellY - centerY));
+        if (maxDistance != Double.POSITIVE_INFINITY) {
+            lastRing = Math.min(lastRing, (long) Math.ceil(maxDistance / cellSize) + 1);
+        }
+
+        T best = null;
+        double bestDistance = maxDistance * maxDistance;
+        for (int ring = 0; ring <= lastRing; ring++) {
+            // Far from every place, visiting the occupied cells beats walking empty rings
+            if ((long) (2 * ring + 1) * (2 * ring + 1) > 4L * cells.size()) {
+                return nearestByScan(x, y, best, bestDistance);
+            }
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                boolean edge = cellX == centerX - ring || cellX == centerX + ring;
+                int step = edge ? 1 : Math.max(1, 2 * ring);
+                for (int cellY = centerY - ring; cellY <= centerY + ring; cellY += step) {
+                    List<T> cell = cells.get(key(cellX, cellY));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (T place : cell) {
+                        double distance = squaredDistance(place, x, y);
+                        if (distance <= bestDistance) {
+                            best = place;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+
+            // Every cell in the next ring is at least 'ring' whole cells away
+            double reach = ring * cellSize;
+            if (best != null && bestDistance <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private T nearestByScan(double x, double y, T best, double bestDistance) {
+        for (List<T> cell : cells.values()) {
+            for (T place : cell) {
+                double distance = squaredDistance(place, x, y);
+                if (distance <= bestDistance) {
+                    best = place;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Returns the places at most 'radius' away from a point
+    public List<T> withinRadius(double x, double y, double radius) {
+        ArrayList<T> result = new ArrayList<>();
+        double squaredRadius = radius * radius;
+        for (List<T> cell : cellsIn(x - radius, y - radius, x + radius, y + radius)) {
+            for (T place : cell) {
+                if (squaredDistance(place, x, y) <= squaredRadius) {
+                    result.add(place);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Returns the places inside a rectangle, borders included
+    public List<T> inRectangle(double minX, double minY, double maxX, double maxY) {
+        ArrayList<T> result = new ArrayList<>();
+        for (List<T> cell : cellsIn(minX, minY, maxX, maxY)) {
+            for (T place : cell) {
+                double x = place.getX();
+                double y = place.getY();
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                    result.add(place);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Returns the occupied cells that overlap a rectangle
+    private List<List<T>> cellsIn(double minX, double minY, double maxX, double maxY) {
+        ArrayList<List<T>> result = new ArrayList<>();
+        if (cellOf.isEmpty() || minX > maxX || minY > maxY) {
+            return result;
+        }
+        int fromX = Math.max(cell(minX), minCellX);
+        int fromY = Math.max(cell(minY), minCellY);
+        int toX = Math.min(cell(maxX), maxCellX);
+        int toY = Math.min(cell(maxY), maxCellY);
+        if (fromX > toX || fromY > toY) {
+            return result;
+        }
+
+        // A rectangle larger than the occupied cells is answered by visiting them instead
+        if (((long) toX - fromX + 1) * ((long) toY - fromY + 1) > cells.size()) {
+            for (HashMap.Entry<Long, List<T>> entry : cells.entrySet()) {
+                int cellX = (int) (entry.getKey() >> 32);
+                int cellY = (int) (long) entry.getKey();
+                if (cellX >= fromX && cellX <= toX && cellY >= fromY && cellY <= toY) {
+                    result.add(entry.getValue());
+                }
+            }
+            return result;
+        }
+        for (int cellX = fromX; cellX <= toX; cellX++) {
+            for (int cellY = fromY; cellY <= toY; cellY++) {
+                List<T> cell = cells.get(key(cellX, cellY));
+                if (cell != null) {
+                    result.add(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int cell(double coordinate) {
+        double cell = Math.floor(coordinate / cellSize);
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, cell));
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    private static double squaredDistance(Place place, double x, double y) {
+        double dx = place.getX() - x;
+        double dy = place.getY() - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+// One undirected connection of a ListGraph. The same record is stored in the adjacency
+// maps of both ends, so a connection costs one object instead of two Edges that have to be
+// kept in sync, and changing its weight is a single write. Names are interned, since most
+// maps reuse a handful of them. The record is itself the edge from node1 to node2; the
+// edge the other way is a small view of it, made on demand.
+class UndirectedEdge<T> extends Edge<T> {
+
+    // The node the record leads away from; the other end is getDestination()
+    final T node1;
+
+    UndirectedEdge(T node1, T node2, String name, int weight) {
+        super(node2, weight, name == null ? null : name.intern());
+        this.node1 = node1;
+    }
+
+    // Returns the connection as an edge leaving 'node', which must be one of its ends
+    Edge<T> from(T node) {
+        return node1 == node || node1.equals(node) ? this : new Reverse<>(this);
+    }
+
+    // Returns the connections in 'edges' as edges leaving 'node', without copying them
+    static <T> Collection<Edge<T>> edgesFrom(T node, Collection<UndirectedEdge<T>> edges) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Edge<T>> iterator() {
+                Iterator<UndirectedEdge<T>> records = edges.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return records.hasNext();
+                    }
+
+                    @Override
+                    public Edge<T> next() {
+                        return records.next().from(node);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return edges.size();
+            }
+        };
+    }
+
+    // The edge from node2 back to node1. Views of the same connection are equal.
+    private static final class Reverse<T> extends Edge<T> {
+        private final UndirectedEdge<T> connection;
+
+        Reverse(UndirectedEdge<T> connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public T getDestination() {
+            return connection.node1;
+        }
+
+        @Override
+        public int getWeight() {
+            return connection.getWeight();
+        }
+
+        @Override
+        public void setWeight(int weight) {
+            connection.setWeight(weight);
+        }
+
+        @Override
+        public String getName() {
+            return connection.getName();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Reverse && ((Reverse<?>) o).connection == connection;
+        }
+
+        @Override
+        public int hashCode() {
+            return ~System.identityHashCode(connection);
+        }
+    }
+}
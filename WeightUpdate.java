@@ -0,0 +1,30 @@
+// A new weight for the connection between two nodes, for Graph.setConnectionWeights
+public class WeightUpdate<T> {
+
+    private final T node1;
+    private final T node2;
+    private final int weight;
+
+    public WeightUpdate(T node1, T node2, int weight) {
+        this.node1 = node1;
+        this.node2 = node2;
+        this.weight = weight;
+    }
+
+    public T getNode1() {
+        return node1;
+    }
+
+    public T getNode2() {
+        return node2;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return node1 + " - " + node2 + " takes " + weight;
+    }
+}
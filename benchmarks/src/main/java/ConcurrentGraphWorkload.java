@@ -0,0 +1,32 @@
+import benchmarks.ConcurrentWorkload;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+// The ConcurrentListGraph side of benchmarks.ConcurrentGraphBenchmark, on a weighted grid
+public class ConcurrentGraphWorkload implements ConcurrentWorkload {
+
+    private ConcurrentListGraph<Integer> graph;
+    private int n;
+    private int[][] connections;
+
+    @Override
+    public void setUp(int side) {
+        graph = new ConcurrentListGraph<>(GraphGenerators.grid(side, new Random(1)));
+        n = side * side;
+        connections = GraphGenerators.connections(graph);
+    }
+
+    @Override
+    public Object getPath() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return graph.getPath(random.nextInt(n), random.nextInt(n));
+    }
+
+    @Override
+    public void setConnectionWeight() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int[] connection = connections[random.nextInt(connections.length)];
+        graph.setConnectionWeight(connection[0], connection[1], 1 + random.nextInt(100));
+    }
+}
@@ -0,0 +1,170 @@
+import benchmarks.GraphWorkload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// The ListGraph side of benchmarks.GraphBenchmark, on graphs from GraphGenerators
+public class ListGraphWorkload implements GraphWorkload {
+
+    // Places in the europa replica, as in the original europa.graph
+    private static final int EUROPA_CITIES = 60;
+
+    // Weights never grow past this in the large tree updates
+    private static final int MAX_WEIGHT = 1_000_000;
+
+    private ListGraph<Integer> graph;
+    private int n;
+    private int[][] connections;
+    private int[][] pairs;
+
+    private int nextConnection;
+    private int nextPair;
+    private final Random random = new Random(3);
+
+    @Override
+    public void setUp(String description) {
+        graph = generate(description);
+        n = graph.getNodes().size();
+        connections = GraphGenerators.connections(graph);
+        pairs = new int[1024][2];
+        Random pairRandom = new Random(2);
+        for (int[] pair : pairs) {
+            pair[0] = pairRandom.nextInt(n);
+            pair[1] = pairRandom.nextInt(n);
+        }
+    }
+
+    private static ListGraph<Integer> generate(String description) {
+        if (description.equals("europa")) {
+            return GraphGenerators.europaReplica(EUROPA_CITIES, new Random(1), new double[EUROPA_CITIES][]);
+        }
+        int separator = description.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected 'europa' or 'shape:size', got '" + description + "'");
+        }
+        String shape = description.substring(0, separator);
+        int size = Integer.parseInt(description.substring(separator + 1));
+        switch (shape) {
+            case "grid":
+                return GraphGenerators.grid((int) Math.sqrt(size), new Random(1));
+            case "randomGeometric":
+                return GraphGenerators.randomGeometric(size, 6, new Random(1), new double[size][]);
+            case "scaleFree":
+                return GraphGenerators.scaleFree(size, 3, new Random(1));
+            default:
+                throw new IllegalArgumentException("Unknown graph shape '" + shape + "'");
+        }
+    }
+
+    @Override
+    public Object load() {
+        ListGraph<Integer> copy = new ListGraph<>();
+        for (int i = 0; i < n; i++) {
+            copy.add(i);
+        }
+        for (int[] connection : connections) {
+            copy.connect(connection[0], connection[1], "road", connection[2]);
+        }
+        return copy;
+    }
+
+    @Override
+    public Object loadBatched() {
+        List<Integer> nodes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            nodes.add(i);
+        }
+        List<Connection<Integer>> batch = new ArrayList<>(connections.length);
+        for (int[] connection : connections) {
+            batch.add(new Connection<>(connection[0], connection[1], "road", connection[2]));
+        }
+        ListGraph<Integer> copy = new ListGraph<>();
+        copy.addAll(nodes);
+        copy.connectAll(batch);
+        return copy;
+    }
+
+    @Override
+    public Object getEdgeBetween() {
+        int[] connection = nextConnection();
+        return graph.getEdgeBetween(connection[0], connection[1]);
+    }
+
+    @Override
+    public Object getPath() {
+        int[] pair = nextPair();
+        return graph.getPath(pair[0], pair[1]);
+    }
+
+    @Override
+    public boolean pathExists() {
+        int[] pair = nextPair();
+        return graph.pathExists(pair[0], pair[1]);
+    }
+
+    @Override
+    public void setConnectionWeight() {
+        int[] connection = nextConnection();
+        graph.setConnectionWeight(connection[0], connection[1], 1 + random.nextInt(100));
+    }
+
+    @Override
+    public Object copy() {
+        return load();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeNodes(Object copy, int count) {
+        ListGraph<Integer> copied = (ListGraph<Integer>) copy;
+        for (int i = 0; i < count; i++) {
+            copied.remove(i);
+        }
+    }
+
+    // A copy of the graph, its shortest path tree from node 0, and the changes to make
+    private static class Tree {
+        final ListGraph<Integer> graph;
+        final ShortestPathTree<Integer> tree;
+        final Random random = new Random(4);
+
+        Tree(ListGraph<Integer> graph) {
+            this.graph = graph;
+            this.tree = new ShortestPathTree<>(graph, 0);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object treeOnCopy() {
+        return new Tree((ListGraph<Integer>) load());
+    }
+
+    @Override
+    public Object updateTree(Object state, int scale, boolean recompute) {
+        Tree tree = (Tree) state;
+        int[] connection = connections[tree.random.nextInt(connections.length)];
+        int oldWeight = tree.graph.getEdgeBetween(connection[0], connection[1]).getWeight();
+        int newWeight = scale == 1
+                ? Math.max(0, oldWeight + (tree.random.nextBoolean() ? 1 : -1))
+                : tree.random.nextBoolean() ? Math.min(MAX_WEIGHT, oldWeight * scale) : Math.max(1, oldWeight / scale);
+        tree.graph.setConnectionWeight(connection[0], connection[1], newWeight);
+        if (recompute) {
+            return new ShortestPathTree<>(tree.graph, 0);
+        }
+        return tree.tree.updateWeight(connection[0], connection[1], oldWeight, newWeight);
+    }
+
+    private int[] nextConnection() {
+        int[] connection = connections[nextConnection];
+        nextConnection = (nextConnection + 1) % connections.length;
+        return connection;
+    }
+
+    private int[] nextPair() {
+        int[] pair = pairs[nextPair];
+        nextPair = (nextPair + 1) % pairs.length;
+        return pair;
+    }
+}
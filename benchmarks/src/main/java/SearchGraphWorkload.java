@@ -0,0 +1,123 @@
+import benchmarks.SearchWorkload;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// The graph side of benchmarks.SearchBenchmark, on graphs from GraphGenerators
+public class SearchGraphWorkload implements SearchWorkload {
+
+    // Pairs checked in setUp to give the same distance with every search
+    private static final int CHECKED_PAIRS = 3;
+
+    private ListGraph<Integer> grid;
+    private int[][] gridPairs;
+    private int nextGridPair;
+
+    private DijkstraSearch<Integer> dijkstra;
+    private DijkstraSearch<Integer> aStar;
+    private int[][] mapPairs;
+    private int nextMapPair;
+
+    @Override
+    public void setUp(int size) {
+        int side = (int) Math.sqrt(size);
+        grid = GraphGenerators.grid(side, new Random(42));
+        gridPairs = randomPairs(side * side, new Random(7));
+
+        double[][] positions = new double[side * side][];
+        ListGraph<Integer> map = GraphGenerators.planarMap(side, new Random(42), positions);
+        Heuristic<Integer> heuristic = (node, target) -> (int) Math.hypot(
+                positions[node][0] - positions[target][0], positions[node][1] - positions[target][1]);
+        dijkstra = new DijkstraSearch<>(map);
+        aStar = new DijkstraSearch<>(map, heuristic);
+        mapPairs = randomPairs(side * side, new Random(7));
+
+        for (int i = 0; i < CHECKED_PAIRS; i++) {
+            int[] pair = gridPairs[i];
+            if (legacyPath(grid, pair[0], pair[1]) != length(grid.getPath(pair[0], pair[1]))) {
+                throw new IllegalStateException("Distances differ for " + pair[0] + " -> " + pair[1]);
+            }
+            pair = mapPairs[i];
+            if (length(dijkstra.findPath(pair[0], pair[1])) != length(aStar.findPath(pair[0], pair[1]))) {
+                throw new IllegalStateException("A* distance differs for " + pair[0] + " -> " + pair[1]);
+            }
+        }
+    }
+
+    @Override
+    public int legacyPath() {
+        int[] pair = nextGridPair();
+        return legacyPath(grid, pair[0], pair[1]);
+    }
+
+    @Override
+    public Object getPath() {
+        int[] pair = nextGridPair();
+        return grid.getPath(pair[0], pair[1]);
+    }
+
+    @Override
+    public int dijkstra() {
+        return settledBy(dijkstra);
+    }
+
+    @Override
+    public int aStar() {
+        return settledBy(aStar);
+    }
+
+    private int settledBy(DijkstraSearch<Integer> search) {
+        int[] pair = mapPairs[nextMapPair];
+        nextMapPair = (nextMapPair + 1) % mapPairs.length;
+        search.findPath(pair[0], pair[1]);
+        return search.getSettledCount();
+    }
+
+    private int[] nextGridPair() {
+        int[] pair = gridPairs[nextGridPair];
+        nextGridPair = (nextGridPair + 1) % gridPairs.length;
+        return pair;
+    }
+
+    private static int[][] randomPairs(int nodeCount, Random random) {
+        int[][] pairs = new int[1024][2];
+        for (int[] pair : pairs) {
+            pair[0] = random.nextInt(nodeCount);
+            pair[1] = random.nextInt(nodeCount);
+        }
+        return pairs;
+    }
+
+    private static int length(List<Edge<Integer>> path) {
+        int length = 0;
+        for (Edge<Integer> edge : path) {
+            length += edge.getWeight();
+        }
+        return length;
+    }
+
+    // The relaxation loop getPath used before the Dijkstra engine: nodes are put back on
+    // a FIFO queue every time their distance improves, until the queue drains
+    private static int legacyPath(Graph<Integer> graph, Integer from, Integer to) {
+        Map<Integer, Integer> weights = new HashMap<>();
+        LinkedList<Integer> queue = new LinkedList<>();
+        weights.put(from, 0);
+        queue.add(from);
+
+        while (!queue.isEmpty()) {
+            Integer t = queue.pollFirst();
+            for (Edge<Integer> edge : graph.getEdgesFrom(t)) {
+                Integer destination = edge.getDestination();
+                int weightToDestination = weights.get(t) + edge.getWeight();
+                if (!weights.containsKey(destination) || weightToDestination < weights.get(destination)) {
+                    weights.put(destination, weightToDestination);
+                    queue.add(destination);
+                }
+            }
+        }
+        return weights.get(to);
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Throughput of ConcurrentListGraph under mixed read/write load, on one grid shared by
+// all threads.
+//
+// mixed: every thread answers getPath queries and makes a weight update in writePercent
+// of its operations. Run it with -t 1, -t 2, -t 4 ... to see how throughput scales with
+// threads at each ratio.
+//
+// readersAndWriter: three threads answer queries while one applies an update and then
+// parks for writeIntervalMicros, so it never takes a core from the readers while idle.
+// Change the thread split with -tg, e.g. -tg 7,1.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentGraphBenchmark {
+
+    @Param({"100"})
+    public int side;
+
+    ConcurrentWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = ConcurrentWorkload.create("ConcurrentGraphWorkload");
+        workload.setUp(side);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Mix {
+        // Percentage of the operations that are writes
+        @Param({"0", "1", "10", "50"})
+        public int writePercent;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pace {
+        // Pause of the writer between updates
+        @Param({"0", "100", "1000"})
+        public long writeIntervalMicros;
+    }
+
+    @Benchmark
+    public Object mixed(Mix mix) {
+        if (ThreadLocalRandom.current().nextInt(100) < mix.writePercent) {
+            workload.setConnectionWeight();
+            return null;
+        }
+        return workload.getPath();
+    }
+
+    @Benchmark
+    @Group("readersAndWriter")
+    @GroupThreads(3)
+    public Object read() {
+        return workload.getPath();
+    }
+
+    @Benchmark
+    @Group("readersAndWriter")
+    @GroupThreads(1)
+    public void write(Pace pace) {
+        workload.setConnectionWeight();
+        if (pace.writeIntervalMicros > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(pace.writeIntervalMicros));
+        }
+    }
+}
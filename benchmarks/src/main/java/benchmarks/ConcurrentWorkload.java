@@ -0,0 +1,24 @@
+package benchmarks;
+
+// The ConcurrentListGraph operations measured by ConcurrentGraphBenchmark, called from
+// many threads at once. Implemented in the unnamed package by ConcurrentGraphWorkload,
+// for the same reason as GraphWorkload.
+public interface ConcurrentWorkload {
+
+    // Generates a side x side grid
+    void setUp(int side);
+
+    // Finds the path between a random pair of nodes
+    Object getPath();
+
+    // Sets a random connection to a random weight
+    void setConnectionWeight();
+
+    static ConcurrentWorkload create(String className) {
+        try {
+            return (ConcurrentWorkload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + className, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Baseline benchmarks for the ListGraph operations, on synthetic graphs of several shapes
+// and sizes, so changes to ListGraph can be compared before and after. Run with -prof gc
+// for the allocation rate and the bytes allocated per operation.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+
+    // Nodes removed per invocation of remove; the europa replica has 60
+    private static final int REMOVALS = 50;
+
+    @Param({"europa", "grid:1000", "grid:10000", "grid:100000", "randomGeometric:1000", "randomGeometric:10000",
+            "randomGeometric:100000", "scaleFree:1000", "scaleFree:10000", "scaleFree:100000"})
+    public String graph;
+
+    GraphWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = GraphWorkload.create("ListGraphWorkload");
+        workload.setUp(graph);
+    }
+
+    // A fresh copy of the graph for every invocation of remove. The GC profiler counts the
+    // copy too, so remove allocates far less than it reports.
+    @State(Scope.Thread)
+    public static class Copy {
+        Object graph;
+
+        @Setup(Level.Invocation)
+        public void setUp(GraphBenchmark benchmark) {
+            graph = benchmark.workload.copy();
+        }
+    }
+
+    // A copy of the graph with its shortest path tree, kept up to date over an iteration
+    @State(Scope.Thread)
+    public static class Tree {
+        Object tree;
+
+        @Setup(Level.Iteration)
+        public void setUp(GraphBenchmark benchmark) {
+            tree = benchmark.workload.treeOnCopy();
+        }
+    }
+
+    @Benchmark
+    public Object load() {
+        return workload.load();
+    }
+
+    @Benchmark
+    public Object loadBatched() {
+        return workload.loadBatched();
+    }
+
+    @Benchmark
+    public Object getEdgeBetween() {
+        return workload.getEdgeBetween();
+    }
+
+    @Benchmark
+    public Object getPath() {
+        return workload.getPath();
+    }
+
+    @Benchmark
+    public boolean pathExists() {
+        return workload.pathExists();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REMOVALS)
+    public void remove(Copy copy) {
+        workload.removeNodes(copy.graph, REMOVALS);
+    }
+
+    @Benchmark
+    public void setConnectionWeight() {
+        workload.setConnectionWeight();
+    }
+
+    // Keeping a shortest path tree up to date under weight changes, by repairing it or by
+    // building it again, for changes of +-1 and for changes up to 10 times over
+    @Benchmark
+    public Object treeRepairSmall(Tree tree) {
+        return workload.updateTree(tree.tree, 1, false);
+    }
+
+    @Benchmark
+    public Object treeRepairLarge(Tree tree) {
+        return workload.updateTree(tree.tree, 10, false);
+    }
+
+    @Benchmark
+    public Object treeRecompute(Tree tree) {
+        return workload.updateTree(tree.tree, 10, true);
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+// The ListGraph operations measured by GraphBenchmark. JMH only accepts benchmarks in a
+// named package, and code in a named package cannot refer to the graph classes in the
+// unnamed package, so the benchmark drives them through this interface. The
+// implementation, ListGraphWorkload, is in the unnamed package and is created by name.
+// Graphs that a benchmark works on alone are handed out as plain Objects.
+public interface GraphWorkload {
+
+    // Generates the graph: "europa", or "shape:size" with shape grid, randomGeometric or
+    // scaleFree and about 'size' nodes
+    void setUp(String graph);
+
+    // Builds a new ListGraph with the nodes and connections of the graph, one add or
+    // connect at a time
+    Object load();
+
+    // The same with one addAll and one connectAll
+    Object loadBatched();
+
+    // Each of these works on the next connection or pair of nodes in turn
+    Object getEdgeBetween();
+
+    Object getPath();
+
+    boolean pathExists();
+
+    void setConnectionWeight();
+
+    // Returns a copy of the graph for removeNodes
+    Object copy();
+
+    // Removes the first 'count' nodes from a copy
+    void removeNodes(Object copy, int count);
+
+    // Returns a copy of the graph with a shortest path tree, for updateTree
+    Object treeOnCopy();
+
+    // Changes the weight of a random connection by one, or 'scale' times over, and then
+    // repairs the tree or builds it again
+    Object updateTree(Object tree, int scale, boolean recompute);
+
+    static GraphWorkload create(String className) {
+        try {
+            return (GraphWorkload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + className, e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Compares the search engines: ListGraph.getPath against the FIFO relaxation loop it
+// replaced on weighted grids, and plain Dijkstra against A* with a Euclidean heuristic on
+// planar maps. The planar benchmarks also count the nodes settled per query.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    SearchWorkload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = SearchWorkload.create("SearchGraphWorkload");
+        workload.setUp(size);
+    }
+
+    // Nodes settled per query, reported next to the time as settled / queries
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Settled {
+        public long settled;
+        public long queries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            settled = 0;
+            queries = 0;
+        }
+
+        void add(int count) {
+            settled += count;
+            queries++;
+        }
+    }
+
+    @Benchmark
+    public int legacyPath() {
+        return workload.legacyPath();
+    }
+
+    @Benchmark
+    public Object getPath() {
+        return workload.getPath();
+    }
+
+    @Benchmark
+    public void dijkstra(Settled settled) {
+        settled.add(workload.dijkstra());
+    }
+
+    @Benchmark
+    public void aStar(Settled settled) {
+        settled.add(workload.aStar());
+    }
+}
@@ -0,0 +1,31 @@
+package benchmarks;
+
+// The searches compared by SearchBenchmark. Implemented in the unnamed package by
+// SearchGraphWorkload, for the same reason as GraphWorkload. Each query works on the next
+// pair of nodes in turn.
+public interface SearchWorkload {
+
+    // Generates a weighted grid and a planar map of about 'size' nodes each
+    void setUp(int size);
+
+    // Finds the distance on the grid with the FIFO relaxation loop getPath used before the
+    // Dijkstra engine
+    int legacyPath();
+
+    // Finds the path on the grid with ListGraph.getPath
+    Object getPath();
+
+    // Plain Dijkstra and A* with a Euclidean heuristic on the planar map. Both return the
+    // number of nodes settled.
+    int dijkstra();
+
+    int aStar();
+
+    static SearchWorkload create(String className) {
+        try {
+            return (SearchWorkload) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create " + className, e);
+        }
+    }
+}